@@ -0,0 +1,78 @@
+package com.nigga.medivaultsb.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    /**
+     * Runs search indexing off the request thread.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor indexingExecutor(
+            @Value("${medivault.search.indexer.threads:2}") int threads,
+            @Value("${medivault.search.indexer.queue-capacity:1000}") int queueCapacity) {
+        return boundedExecutor("record-indexer-", threads, queueCapacity);
+    }
+
+    /**
+     * Renders thumbnails off the request thread. Kept apart from indexing so that slow PDF
+     * rendering cannot hold up search.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor renditionExecutor(
+            @Value("${medivault.renditions.threads:2}") int threads,
+            @Value("${medivault.renditions.queue-capacity:1000}") int queueCapacity) {
+        return boundedExecutor("record-rendition-", threads, queueCapacity);
+    }
+
+    /**
+     * Sends outbox batches. The dispatcher never claims more batches than there are threads,
+     * so the queue only absorbs the hand-off.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor mailExecutor(@Value("${medivault.mail.outbox.workers:2}") int workers) {
+        return boundedExecutor("mail-dispatch-", workers, workers);
+    }
+
+    /**
+     * Runs reminders handed over by the timing wheel, keeping its tick thread free.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor reminderExecutor(
+            @Value("${medivault.reminders.threads:1}") int threads,
+            @Value("${medivault.reminders.queue-capacity:10000}") int queueCapacity) {
+        return boundedExecutor("appointment-reminder-", threads, queueCapacity);
+    }
+
+    /**
+     * Offers freed slots to the waitlist and runs hold expiries handed over by its timing wheel.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor waitlistExecutor(
+            @Value("${medivault.waitlist.threads:1}") int threads,
+            @Value("${medivault.waitlist.queue-capacity:1000}") int queueCapacity) {
+        return boundedExecutor("waitlist-", threads, queueCapacity);
+    }
+
+    // When the queue is full the committing thread runs the task itself, which slows uploads
+    // down instead of dropping work
+    private ThreadPoolTaskExecutor boundedExecutor(String threadNamePrefix, int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
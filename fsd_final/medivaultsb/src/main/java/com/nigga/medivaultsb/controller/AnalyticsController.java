@@ -0,0 +1,29 @@
+package com.nigga.medivaultsb.controller;
+
+import com.nigga.medivaultsb.dto.AppointmentDayStats;
+import com.nigga.medivaultsb.service.AppointmentStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    @Autowired
+    private AppointmentStatsService appointmentStatsService;
+    
+    @GetMapping("/appointments/daily")
+    public ResponseEntity<List<AppointmentDayStats>> getDailyAppointmentStats(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(appointmentStatsService.getDailyStats(from, to));
+    }
+}
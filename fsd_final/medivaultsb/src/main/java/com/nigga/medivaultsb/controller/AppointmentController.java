@@ -1,16 +1,25 @@
 package com.nigga.medivaultsb.controller;
 
 import com.nigga.medivaultsb.dto.AppointmentDTO;
+import com.nigga.medivaultsb.dto.AppointmentStatusUpdate;
+import com.nigga.medivaultsb.dto.CursorPage;
+import com.nigga.medivaultsb.dto.DoctorDirectoryPage;
+import com.nigga.medivaultsb.dto.PatientRosterPage;
 import com.nigga.medivaultsb.dto.UserDTO;
 import com.nigga.medivaultsb.service.AppointmentService;
+import com.nigga.medivaultsb.service.DoctorDirectory;
 import com.nigga.medivaultsb.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -26,6 +35,13 @@ public class AppointmentController {
         return ResponseEntity.ok(appointmentService.getPatientAppointments());
     }
     
+    @GetMapping(value = "/patient", params = "limit")
+    public ResponseEntity<CursorPage<AppointmentDTO>> getPatientAppointmentsPage(
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return ResponseEntity.ok(appointmentService.getPatientAppointments(limit, cursor));
+    }
+    
     @GetMapping("/patient/upcoming")
     public ResponseEntity<List<AppointmentDTO>> getPatientUpcomingAppointments() {
         return ResponseEntity.ok(appointmentService.getPatientUpcomingAppointments());
@@ -36,14 +52,65 @@ public class AppointmentController {
         return ResponseEntity.ok(appointmentService.getDoctorAppointments());
     }
     
+    @GetMapping(value = "/doctor", params = "limit")
+    public ResponseEntity<CursorPage<AppointmentDTO>> getDoctorAppointmentsPage(
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return ResponseEntity.ok(appointmentService.getDoctorAppointments(limit, cursor));
+    }
+    
+    @GetMapping("/doctor/patients")
+    public ResponseEntity<PatientRosterPage> getPatientRoster(
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        return ResponseEntity.ok(appointmentService.getPatientRoster(name, page, size));
+    }
+    
     @GetMapping("/doctor/upcoming")
     public ResponseEntity<List<AppointmentDTO>> getDoctorUpcomingAppointments() {
         return ResponseEntity.ok(appointmentService.getDoctorUpcomingAppointments());
     }
     
     @GetMapping("/doctors")
-    public ResponseEntity<List<UserDTO>> getAllDoctors() {
-        return ResponseEntity.ok(appointmentService.getAllDoctors());
+    public ResponseEntity<List<UserDTO>> getAllDoctors(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        DoctorDirectory.Snapshot directory = appointmentService.getDoctorDirectory();
+        if (matchesEtag(ifNoneMatch, directory.getEtag())) {
+            return notModified(directory);
+        }
+        return ResponseEntity.ok()
+                .eTag(directory.getEtag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(directory.getDoctors());
+    }
+    
+    @GetMapping("/doctors/search")
+    public ResponseEntity<DoctorDirectoryPage> searchDoctors(
+            @RequestParam(value = "specialty", required = false) String specialty,
+            @RequestParam(value = "location", required = false) String location,
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // Results are a function of the query and the directory version, so the version is a valid ETag
+        DoctorDirectory.Snapshot directory = appointmentService.getDoctorDirectory();
+        if (matchesEtag(ifNoneMatch, directory.getEtag())) {
+            return notModified(directory);
+        }
+        return ResponseEntity.ok()
+                .eTag(directory.getEtag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(directory.search(specialty, location, name, page, size));
+    }
+    
+    @GetMapping("/doctors/{doctorId}/free-slots")
+    public ResponseEntity<List<LocalDateTime>> getFreeSlots(
+            @PathVariable Long doctorId,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "days", defaultValue = "7") int days) {
+        return ResponseEntity.ok(appointmentService.getFreeSlots(
+                doctorId, from != null ? from : LocalDate.now(), days));
     }
     
     @PostMapping("/schedule")
@@ -67,6 +134,26 @@ public class AppointmentController {
         return ResponseEntity.ok(appointment);
     }
     
+    @PutMapping("/status")
+    public ResponseEntity<List<AppointmentDTO>> updateAppointmentStatuses(@RequestBody Map<String, Object> payload) {
+        Object rawUpdates = payload.get("updates");
+        if (!(rawUpdates instanceof List<?> updateList)) {
+            throw new IllegalArgumentException("updates is required");
+        }
+        
+        List<AppointmentStatusUpdate> updates = new ArrayList<>();
+        for (Object item : updateList) {
+            Map<?, ?> update = (Map<?, ?>) item;
+            Object id = update.get("id");
+            updates.add(new AppointmentStatusUpdate(
+                    id != null ? Long.parseLong(id.toString()) : null,
+                    (String) update.get("status"),
+                    (String) update.get("rejectionReason")));
+        }
+        
+        return ResponseEntity.ok(appointmentService.updateAppointmentStatuses(updates));
+    }
+    
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteAppointment(@PathVariable Long id) {
         appointmentService.deleteAppointment(id);
@@ -77,4 +164,27 @@ public class AppointmentController {
     public ResponseEntity<List<UserDTO>> getAllPatientsForDoctor(@RequestParam Long doctorId) {
         return ResponseEntity.ok(appointmentService.getAllPatientsForDoctor(doctorId));
     }
+    
+    private <T> ResponseEntity<T> notModified(DoctorDirectory.Snapshot directory) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(directory.getEtag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .build();
+    }
+    
+    private boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 } 
\ No newline at end of file
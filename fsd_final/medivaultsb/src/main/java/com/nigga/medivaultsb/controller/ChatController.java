@@ -1,7 +1,11 @@
 package com.nigga.medivaultsb.controller;
 
+import com.nigga.medivaultsb.dto.ChatConversationDTO;
+import com.nigga.medivaultsb.dto.ChatHistorySlice;
+import com.nigga.medivaultsb.dto.ChatMessageDTO;
+import com.nigga.medivaultsb.dto.CursorPage;
+import com.nigga.medivaultsb.dto.UserDTO;
 import com.nigga.medivaultsb.model.ChatMessage;
-import com.nigga.medivaultsb.model.User;
 import com.nigga.medivaultsb.service.ChatService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -36,9 +40,35 @@ public class ChatController {
         return ResponseEntity.ok(messages);
     }
 
+    @GetMapping(value = "/history/{userId1}/{userId2}", params = "limit")
+    public ResponseEntity<CursorPage<ChatMessageDTO>> getChatHistoryPage(
+            @PathVariable Long userId1,
+            @PathVariable Long userId2,
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return ResponseEntity.ok(chatService.getChatHistory(userId1, userId2, limit, cursor));
+    }
+
+    @GetMapping("/messages/{userId1}/{userId2}")
+    public ResponseEntity<ChatHistorySlice> getChatMessages(
+            @PathVariable Long userId1,
+            @PathVariable Long userId2,
+            @RequestParam(value = "afterId", required = false) Long afterId,
+            @RequestParam(value = "beforeId", required = false) Long beforeId,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        return ResponseEntity.ok(chatService.getChatMessages(userId1, userId2, afterId, beforeId, limit));
+    }
+
+    @GetMapping("/conversations")
+    public ResponseEntity<CursorPage<ChatConversationDTO>> getConversations(
+            @RequestParam(value = "limit", defaultValue = "20") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return ResponseEntity.ok(chatService.getConversations(limit, cursor));
+    }
+
     @GetMapping("/partners/{userId}")
-    public ResponseEntity<List<User>> getChatPartners(@PathVariable Long userId) {
-        List<User> partners = chatService.getChatPartners(userId);
+    public ResponseEntity<List<UserDTO>> getChatPartners(@PathVariable Long userId) {
+        List<UserDTO> partners = chatService.getChatPartners(userId);
         return ResponseEntity.ok(partners);
     }
 
@@ -1,22 +1,43 @@
 package com.nigga.medivaultsb.controller;
 
+import com.nigga.medivaultsb.dto.CursorPage;
 import com.nigga.medivaultsb.dto.MedicalRecordDTO;
+import com.nigga.medivaultsb.model.RecordRendition;
+import com.nigga.medivaultsb.repository.MedicalRecordExportRow;
 import com.nigga.medivaultsb.service.MedicalRecordService;
+import com.nigga.medivaultsb.storage.RecordFile;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/medical-records")
 public class MedicalRecordController {
-
+    
+    // Request attributes understood by Tomcat's NIO connector for kernel-level sendfile
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+    
     @Autowired
     private MedicalRecordService medicalRecordService;
     
@@ -25,6 +46,20 @@ public class MedicalRecordController {
         return ResponseEntity.ok(medicalRecordService.getMedicalRecords());
     }
     
+    @GetMapping(params = "limit")
+    public ResponseEntity<CursorPage<MedicalRecordDTO>> getMedicalRecordsPage(
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return ResponseEntity.ok(medicalRecordService.getMedicalRecords(limit, cursor));
+    }
+    
+    @GetMapping("/search")
+    public ResponseEntity<List<MedicalRecordDTO>> searchMedicalRecords(
+            @RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return ResponseEntity.ok(medicalRecordService.searchMedicalRecords(query, limit));
+    }
+    
     @PostMapping
     public ResponseEntity<MedicalRecordDTO> addMedicalRecord(
             @RequestParam("title") String title,
@@ -43,14 +78,133 @@ public class MedicalRecordController {
     }
     
     @GetMapping("/{id}/file")
-    public ResponseEntity<byte[]> downloadFile(@PathVariable Long id) {
-        byte[] fileData = medicalRecordService.getMedicalRecordFile(id);
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-        headers.setContentDispositionFormData("attachment", "record_" + id + ".pdf");
+    public void downloadFile(@PathVariable Long id,
+                             HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        RecordFile file = medicalRecordService.getMedicalRecordFile(id);
+        // The storage key is the SHA-256 of the content, so it is a strong validator
+        String etag = "\"" + file.storageKey() + "\"";
+        
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        
+        if (matchesEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+        
+        response.setContentType(file.contentType() != null
+                ? file.contentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(file.fileName(), StandardCharsets.UTF_8)
+                .build()
+                .toString());
+        
+        long start = 0;
+        long length = file.size();
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();
+            }
+            
+            // Multi-range requests are answered with the whole file, which RFC 9110 allows
+            if (ranges.size() == 1) {
+                long rangeStart = ranges.get(0).getRangeStart(file.size());
+                long rangeEnd = ranges.get(0).getRangeEnd(file.size());
+                if (rangeStart >= file.size() || rangeStart > rangeEnd) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + file.size());
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    return;
+                }
+                start = rangeStart;
+                length = rangeEnd - rangeStart + 1;
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + start + "-" + (start + length - 1) + "/" + file.size());
+            }
+        }
+        
+        response.setContentLengthLong(length);
+        
+        Optional<Path> localFile = medicalRecordService.getLocalFile(file);
+        if (localFile.isPresent() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            // Tomcat streams the file straight from the page cache once the handler returns
+            request.setAttribute(SENDFILE_FILENAME_ATTR, localFile.get().toString());
+            request.setAttribute(SENDFILE_START_ATTR, start);
+            request.setAttribute(SENDFILE_END_ATTR, start + length);
+            return;
+        }
+        
+        medicalRecordService.writeMedicalRecordFile(file, start, length, response.getOutputStream());
+    }
+    
+    @GetMapping("/{id}/thumbnail")
+    public ResponseEntity<byte[]> getThumbnail(@PathVariable Long id,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<RecordRendition> thumbnail = medicalRecordService.getMedicalRecordThumbnail(id);
+        if (thumbnail.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        // A record's payload never changes, so neither does its thumbnail
+        String etag = "\"" + thumbnail.get().getStorageKey() + "-thumb\"";
+        CacheControl cacheControl = CacheControl.maxAge(Duration.ofDays(30)).cachePrivate();
+        if (matchesEtag(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .contentType(MediaType.parseMediaType(thumbnail.get().getContentType()))
+                .body(thumbnail.get().getData());
+    }
+    
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportMedicalRecords() {
+        // Resolve the rows while the security context is still bound to this thread
+        List<MedicalRecordExportRow> rows = medicalRecordService.getMedicalRecordsForExport();
+        StreamingResponseBody body = outputStream -> medicalRecordService.writeExport(rows, outputStream);
         
         return ResponseEntity.ok()
-                .headers(headers)
-                .body(fileData);
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("medivault-records-" + LocalDate.now() + ".zip")
+                        .build()
+                        .toString())
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .body(body);
+    }
+    
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteMedicalRecord(@PathVariable Long id) throws IOException {
+        medicalRecordService.deleteMedicalRecord(id);
+        return ResponseEntity.noContent().build();
+    }
+    
+    private boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
     }
-} 
\ No newline at end of file
+}
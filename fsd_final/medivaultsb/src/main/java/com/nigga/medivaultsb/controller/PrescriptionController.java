@@ -1,5 +1,6 @@
 package com.nigga.medivaultsb.controller;
 
+import com.nigga.medivaultsb.dto.CursorPage;
 import com.nigga.medivaultsb.dto.PrescriptionDTO;
 import com.nigga.medivaultsb.service.PrescriptionService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,6 +28,20 @@ public class PrescriptionController {
         return ResponseEntity.ok(prescriptionService.getDoctorPrescriptions());
     }
     
+    @GetMapping(value = "/patient", params = "limit")
+    public ResponseEntity<CursorPage<PrescriptionDTO>> getPatientPrescriptionsPage(
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return ResponseEntity.ok(prescriptionService.getPatientPrescriptions(limit, cursor));
+    }
+    
+    @GetMapping(value = "/doctor", params = "limit")
+    public ResponseEntity<CursorPage<PrescriptionDTO>> getDoctorPrescriptionsPage(
+            @RequestParam("limit") int limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        return ResponseEntity.ok(prescriptionService.getDoctorPrescriptions(limit, cursor));
+    }
+    
     @PostMapping
     public ResponseEntity<PrescriptionDTO> addPrescription(@RequestBody Map<String, Object> payload) {
         Object patientIdObj = payload.get("patientId");
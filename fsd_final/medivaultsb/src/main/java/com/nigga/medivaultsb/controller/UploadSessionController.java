@@ -0,0 +1,75 @@
+package com.nigga.medivaultsb.controller;
+
+import com.nigga.medivaultsb.dto.MedicalRecordDTO;
+import com.nigga.medivaultsb.dto.UploadSessionDTO;
+import com.nigga.medivaultsb.service.UploadSessionService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/medical-records/uploads")
+public class UploadSessionController {
+    
+    private static final String UPLOAD_OFFSET_HEADER = "Upload-Offset";
+    
+    @Autowired
+    private UploadSessionService uploadSessionService;
+    
+    @PostMapping
+    public ResponseEntity<UploadSessionDTO> createSession(@RequestBody Map<String, Object> payload) {
+        Object totalSizeObj = payload.get("totalSize");
+        if (totalSizeObj == null) {
+            throw new IllegalArgumentException("totalSize is required");
+        }
+        long totalSize = Long.parseLong(totalSizeObj.toString());
+        
+        UploadSessionDTO session = uploadSessionService.createSession(
+                (String) payload.get("title"),
+                (String) payload.get("doctorName"),
+                (String) payload.get("recordType"),
+                (String) payload.get("description"),
+                (String) payload.get("fileName"),
+                (String) payload.get("contentType"),
+                totalSize);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(UPLOAD_OFFSET_HEADER, String.valueOf(session.getOffset()))
+                .body(session);
+    }
+    
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadSessionDTO> getSession(@PathVariable String id) throws IOException {
+        UploadSessionDTO session = uploadSessionService.getSession(id);
+        return ResponseEntity.ok()
+                .header(UPLOAD_OFFSET_HEADER, String.valueOf(session.getOffset()))
+                .body(session);
+    }
+    
+    @PutMapping("/{id}")
+    public ResponseEntity<UploadSessionDTO> appendChunk(
+            @PathVariable String id,
+            @RequestHeader(UPLOAD_OFFSET_HEADER) long offset,
+            HttpServletRequest request) throws IOException {
+        UploadSessionDTO session = uploadSessionService.appendChunk(id, offset, request.getInputStream());
+        return ResponseEntity.ok()
+                .header(UPLOAD_OFFSET_HEADER, String.valueOf(session.getOffset()))
+                .body(session);
+    }
+    
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<MedicalRecordDTO> completeSession(@PathVariable String id) throws IOException {
+        MedicalRecordDTO record = uploadSessionService.completeSession(id);
+        return ResponseEntity.status(HttpStatus.CREATED).body(record);
+    }
+    
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> abortSession(@PathVariable String id) {
+        uploadSessionService.abortSession(id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,52 @@
+package com.nigga.medivaultsb.controller;
+
+import com.nigga.medivaultsb.dto.WaitlistEntryDTO;
+import com.nigga.medivaultsb.service.WaitlistService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/waitlist")
+public class WaitlistController {
+
+    @Autowired
+    private WaitlistService waitlistService;
+    
+    @GetMapping
+    public ResponseEntity<List<WaitlistEntryDTO>> getMyWaitlistEntries() {
+        return ResponseEntity.ok(waitlistService.getMyWaitlistEntries());
+    }
+    
+    @PostMapping
+    public ResponseEntity<WaitlistEntryDTO> joinWaitlist(@RequestBody Map<String, Object> payload) {
+        Object doctorIdObj = payload.get("doctorId");
+        Object dateObj = payload.get("date");
+        if (doctorIdObj == null || dateObj == null) {
+            throw new IllegalArgumentException("doctorId and date are required");
+        }
+        Long doctorId = Long.parseLong(doctorIdObj.toString());
+        LocalDate date = LocalDate.parse(dateObj.toString());
+        Object urgencyObj = payload.get("urgency");
+        int urgency = urgencyObj != null ? Integer.parseInt(urgencyObj.toString()) : 0;
+        
+        WaitlistEntryDTO entry = waitlistService.joinWaitlist(doctorId, date, urgency);
+        return ResponseEntity.status(HttpStatus.CREATED).body(entry);
+    }
+    
+    @PostMapping("/{id}/accept")
+    public ResponseEntity<WaitlistEntryDTO> acceptOffer(@PathVariable Long id) {
+        return ResponseEntity.ok(waitlistService.acceptOffer(id));
+    }
+    
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> cancelEntry(@PathVariable Long id) {
+        waitlistService.cancelEntry(id);
+        return ResponseEntity.noContent().build();
+    }
+}
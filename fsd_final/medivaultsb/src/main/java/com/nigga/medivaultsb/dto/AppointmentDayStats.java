@@ -0,0 +1,24 @@
+package com.nigga.medivaultsb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentDayStats {
+    private LocalDate day;
+    private long pending;
+    private long approved;
+    private long rejected;
+    private long finished;
+    
+    // Lead time is the gap between booking an appointment and the appointment itself
+    private Double averageLeadHours;
+    private long leadUnderOneDay;
+    private long leadOneToSevenDays;
+    private long leadOverSevenDays;
+}
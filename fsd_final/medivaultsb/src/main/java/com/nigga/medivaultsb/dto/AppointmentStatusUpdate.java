@@ -0,0 +1,14 @@
+package com.nigga.medivaultsb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentStatusUpdate {
+    private Long id;
+    private String status;
+    private String rejectionReason;
+}
@@ -0,0 +1,21 @@
+package com.nigga.medivaultsb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatConversationDTO {
+    private Long id;
+    private UserDTO partner;
+    private Long lastMessageId;
+    private Long lastSenderId;
+    // The first 200 characters of the latest message
+    private String lastMessagePreview;
+    private LocalDateTime lastMessageAt;
+    private Integer unreadCount;
+}
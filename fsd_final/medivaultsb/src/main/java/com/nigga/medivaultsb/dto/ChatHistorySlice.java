@@ -0,0 +1,17 @@
+package com.nigga.medivaultsb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatHistorySlice {
+    // In time order
+    private List<ChatMessageDTO> messages;
+    // Whether more messages exist beyond this slice in the direction it was fetched
+    private boolean hasMore;
+}
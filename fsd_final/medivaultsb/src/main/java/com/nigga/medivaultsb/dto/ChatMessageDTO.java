@@ -0,0 +1,19 @@
+package com.nigga.medivaultsb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatMessageDTO {
+    private Long id;
+    private Long senderId;
+    private Long receiverId;
+    private String message;
+    private LocalDateTime timestamp;
+    private boolean read;
+}
@@ -0,0 +1,19 @@
+package com.nigga.medivaultsb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatReadReceipt {
+    // The user who read the messages, and the user whose messages they read
+    private Long readerId;
+    private Long senderId;
+    // Every message from the sender up to and including this id has been read
+    private Long lastReadId;
+    private LocalDateTime readAt;
+}
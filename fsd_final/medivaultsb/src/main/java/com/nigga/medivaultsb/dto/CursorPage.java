@@ -0,0 +1,17 @@
+package com.nigga.medivaultsb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    // Opaque tokens for the adjacent pages; null when there is nothing in that direction
+    private String nextCursor;
+    private String prevCursor;
+}
@@ -0,0 +1,18 @@
+package com.nigga.medivaultsb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DoctorDirectoryPage {
+    private List<UserDTO> doctors;
+    private int page;
+    private int size;
+    // Number of doctors matching the filters, across all pages
+    private int total;
+}
@@ -16,5 +16,7 @@ public class MedicalRecordDTO {
     private String recordType;
     private String description;
     private String fileName;
+    private String contentType;
+    private Long fileSize;
     private LocalDateTime uploadedAt;
 } 
\ No newline at end of file
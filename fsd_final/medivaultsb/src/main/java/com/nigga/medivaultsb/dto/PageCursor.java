@@ -0,0 +1,37 @@
+package com.nigga.medivaultsb.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a list sorted by a timestamp with the row id as tie-breaker. {@code backward}
+ * cursors fetch the page before the position, forward cursors the page after it.
+ */
+public record PageCursor(LocalDateTime key, Long id, boolean backward) {
+
+    public String encode() {
+        String raw = (backward ? "b" : "f") + "|" + key + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the decoded cursor, or null for a missing cursor, which means the first page
+     */
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3 || !(parts[0].equals("b") || parts[0].equals("f"))) {
+                throw new IllegalArgumentException(raw);
+            }
+            return new PageCursor(LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]), parts[0].equals("b"));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.nigga.medivaultsb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientRosterEntry {
+    private UserDTO patient;
+    // Latest appointment with the doctor, which may still lie ahead
+    private LocalDateTime lastVisit;
+}
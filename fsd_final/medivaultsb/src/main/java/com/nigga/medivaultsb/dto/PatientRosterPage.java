@@ -0,0 +1,18 @@
+package com.nigga.medivaultsb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientRosterPage {
+    private List<PatientRosterEntry> patients;
+    private int page;
+    private int size;
+    // Number of patients matching the filter, across all pages
+    private long total;
+}
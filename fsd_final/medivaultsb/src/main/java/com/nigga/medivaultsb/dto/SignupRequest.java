@@ -2,6 +2,7 @@ package com.nigga.medivaultsb.dto;
 
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -25,7 +26,10 @@ public class SignupRequest {
     
     private String phone;
     
+    // Anyone can sign up, so only the roles anyone may hold; ADMIN accounts are not self-service
     @NotBlank(message = "Role is required")
+    @Pattern(regexp = "PATIENT|DOCTOR", flags = Pattern.Flag.CASE_INSENSITIVE,
+            message = "Role must be PATIENT or DOCTOR")
     private String role;
     
     private String gender;
@@ -0,0 +1,23 @@
+package com.nigga.medivaultsb.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaitlistEntryDTO {
+    private Long id;
+    private UserDTO doctor;
+    private LocalDate requestedDate;
+    private Integer urgency;
+    private String status;
+    private Long appointmentId;
+    private LocalDateTime offeredTime;
+    private LocalDateTime offerExpiresAt;
+    private LocalDateTime createdAt;
+}
@@ -30,7 +30,7 @@ public class Appointment {
     private LocalDateTime appointmentTime;
     
     @Column(name = "status", nullable = false, length = 20)
-    private String status;  // PENDING, APPROVED, REJECTED
+    private String status;  // HELD, PENDING, APPROVED, REJECTED, FINISHED
     
     @Column(name = "rejection_reason")
     private String rejectionReason;
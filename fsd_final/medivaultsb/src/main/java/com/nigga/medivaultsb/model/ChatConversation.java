@@ -0,0 +1,49 @@
+package com.nigga.medivaultsb.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One user's view of a conversation: the latest message exchanged with {@code partner} and how
+ * many of the partner's messages the user has not read. Each conversation has a row for either
+ * participant. Rows are maintained by {@code ChatService} with upserts as messages are sent and
+ * read; this entity is only used to read the inbox.
+ */
+@Entity
+@Table(name = "chat_conversations")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatConversation {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "partner_id", nullable = false)
+    private User partner;
+    
+    @Column(name = "last_message_id", nullable = false)
+    private Long lastMessageId;
+    
+    @Column(name = "last_sender_id", nullable = false)
+    private Long lastSenderId;
+    
+    @Column(name = "last_message_preview", nullable = false, length = 200)
+    private String lastMessagePreview;
+    
+    @Column(name = "last_message_at", nullable = false)
+    private LocalDateTime lastMessageAt;
+    
+    @Column(name = "unread_count", nullable = false)
+    private Integer unreadCount;
+}
@@ -1,5 +1,6 @@
 package com.nigga.medivaultsb.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.time.LocalDateTime;
@@ -26,11 +27,23 @@ public class ChatMessage {
     @Column(nullable = false)
     private LocalDateTime timestamp;
 
-    @Column(nullable = false)
+    // Derived from the receiver's read watermark when messages are returned; the is_read column is no longer written
+    @Transient
     private boolean isRead = false;
 
+    // Conversation key: the two participant ids in ascending order, whoever sent the message
+    @JsonIgnore
+    @Column(name = "user_low_id", nullable = false)
+    private Long userLowId;
+
+    @JsonIgnore
+    @Column(name = "user_high_id", nullable = false)
+    private Long userHighId;
+
     @PrePersist
     protected void onCreate() {
         timestamp = LocalDateTime.now();
+        userLowId = Math.min(sender.getId(), receiver.getId());
+        userHighId = Math.max(sender.getId(), receiver.getId());
     }
 } 
\ No newline at end of file
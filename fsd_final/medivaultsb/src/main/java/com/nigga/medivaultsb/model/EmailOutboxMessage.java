@@ -0,0 +1,73 @@
+package com.nigga.medivaultsb.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "email_outbox")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailOutboxMessage {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "recipient", nullable = false)
+    private String recipient;
+    
+    @Column(name = "subject", nullable = false)
+    private String subject;
+    
+    @Column(name = "body", nullable = false, columnDefinition = "TEXT")
+    private String body;
+    
+    // Set for emails that must go out at most once however often they are queued
+    @Column(name = "dedup_key", length = 150, unique = true)
+    private String dedupKey;
+    
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;  // PENDING, SENDING, SENT, DEAD
+    
+    // Delivery attempts started so far, including one in progress
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts;
+    
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+    
+    // While SENDING: the dispatcher run holding the message and until when
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+    
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+    
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+        if (status == null) {
+            status = "PENDING";
+        }
+        if (attempts == null) {
+            attempts = 0;
+        }
+    }
+}
@@ -40,9 +40,15 @@ public class MedicalRecord {
     @Column(name = "content_type", nullable = false, length = 100)
     private String contentType;
     
-    @Lob
-    @Column(name = "file_data", nullable = false, columnDefinition = "bytea")
-    private byte[] fileData;
+    @Column(name = "storage_key", nullable = false, length = 64)
+    private String storageKey;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "storage_key", insertable = false, updatable = false)
+    private RecordBlob blob;
+    
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
     
     @Column(name = "uploaded_at", nullable = false)
     private LocalDateTime uploadedAt;
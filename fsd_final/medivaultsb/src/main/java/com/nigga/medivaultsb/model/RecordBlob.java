@@ -0,0 +1,40 @@
+package com.nigga.medivaultsb.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "record_blobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecordBlob {
+    
+    // SHA-256 of the payload, hex encoded; also the key in RecordStorage
+    @Id
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+    
+    // Length of the original payload, as served to clients
+    @Column(name = "size", nullable = false)
+    private Long size;
+    
+    // CompressionCodec name applied before the payload reached RecordStorage
+    @Column(name = "codec", nullable = false, length = 20)
+    private String codec;
+    
+    // Bytes actually held by RecordStorage; null until the payload has been written
+    @Column(name = "stored_size")
+    private Long storedSize;
+    
+    // Number of medical_records rows pointing at this payload
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,41 @@
+package com.nigga.medivaultsb.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "record_renditions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RecordRendition {
+    
+    // Content hash of the source payload, so records sharing a payload share its thumbnail
+    @Id
+    @Column(name = "storage_key", length = 64)
+    private String storageKey;
+    
+    @Column(name = "content_type", nullable = false, length = 100)
+    private String contentType;
+    
+    @Column(name = "data", nullable = false)
+    private byte[] data;
+    
+    @Column(name = "width", nullable = false)
+    private Integer width;
+    
+    @Column(name = "height", nullable = false)
+    private Integer height;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,53 @@
+package com.nigga.medivaultsb.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "upload_sessions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession {
+    
+    @Id
+    @Column(name = "id", length = 36)
+    private String id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "patient_id", nullable = false)
+    private User patient;
+    
+    @Column(name = "title", length = 255)
+    private String title;
+    
+    @Column(name = "doctor_name", length = 255)
+    private String doctorName;
+    
+    @Column(name = "record_type", length = 100)
+    private String recordType;
+    
+    @Column(name = "description", length = 1000)
+    private String description;
+    
+    @Column(name = "file_name", nullable = false, length = 255)
+    private String fileName;
+    
+    @Column(name = "content_type", nullable = false, length = 100)
+    private String contentType;
+    
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,67 @@
+package com.nigga.medivaultsb.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "waitlist_entries")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaitlistEntry {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "patient_id", nullable = false)
+    private User patient;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "doctor_id", nullable = false)
+    private User doctor;
+    
+    @Column(name = "requested_date", nullable = false)
+    private LocalDate requestedDate;
+    
+    // 0 (routine) to 2 (urgent); more urgent entries are offered slots first
+    @Column(name = "urgency", nullable = false)
+    private Integer urgency;
+    
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;  // WAITING, OFFERED, BOOKED, EXPIRED, DECLINED, CANCELLED
+    
+    // The HELD appointment while an offer is open, then the booked appointment
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "appointment_id")
+    private Appointment appointment;
+    
+    @Column(name = "offered_time")
+    private LocalDateTime offeredTime;
+    
+    @Column(name = "offer_expires_at")
+    private LocalDateTime offerExpiresAt;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+    
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,82 @@
+package com.nigga.medivaultsb.rendition;
+
+import com.nigga.medivaultsb.model.RecordRendition;
+import com.nigga.medivaultsb.repository.MedicalRecordExportRow;
+import com.nigga.medivaultsb.repository.MedicalRecordRepository;
+import com.nigga.medivaultsb.repository.RecordRenditionRepository;
+import com.nigga.medivaultsb.service.MedicalRecordCreatedEvent;
+import com.nigga.medivaultsb.storage.CompressionCodec;
+import com.nigga.medivaultsb.storage.RecordFile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Generates thumbnails for new records in the background and serves them through
+ * {@link RenditionCache}. Renditions are keyed by content hash and removed together with
+ * their payload by the foreign key on {@code record_blobs}.
+ */
+@Service
+@Slf4j
+public class RecordRenditionService {
+
+    @Autowired
+    private RecordRenditionRepository recordRenditionRepository;
+
+    @Autowired
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Autowired
+    private ThumbnailRenderer thumbnailRenderer;
+
+    @Autowired
+    private RenditionCache renditionCache;
+
+    public Optional<RecordRendition> findThumbnail(String storageKey) {
+        RecordRendition cached = renditionCache.get(storageKey);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Optional<RecordRendition> stored = recordRenditionRepository.findById(storageKey);
+        stored.ifPresent(renditionCache::put);
+        return stored;
+    }
+
+    @Async("renditionExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onMedicalRecordCreated(MedicalRecordCreatedEvent event) {
+        Optional<MedicalRecordExportRow> row = medicalRecordRepository.findExportRowById(event.recordId());
+        if (row.isEmpty() || recordRenditionRepository.existsById(row.get().getStorageKey())) {
+            // Deleted in the meantime, or the same payload was already rendered for another record
+            return;
+        }
+
+        RecordFile file = new RecordFile(
+                row.get().getStorageKey(),
+                row.get().getFileName(),
+                row.get().getContentType(),
+                row.get().getFileSize(),
+                CompressionCodec.valueOf(row.get().getCodec())
+        );
+
+        try {
+            thumbnailRenderer.render(file).ifPresent(rendition -> {
+                recordRenditionRepository.save(rendition);
+                renditionCache.put(rendition);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent upload of the same content stored it first, or the payload was released
+            log.debug("Skipped thumbnail for {}: {}", file.storageKey(), e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not render thumbnail for medical record {}: {}", event.recordId(), e.getMessage());
+        }
+    }
+}
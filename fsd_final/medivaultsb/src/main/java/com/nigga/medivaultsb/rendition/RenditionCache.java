@@ -0,0 +1,53 @@
+package com.nigga.medivaultsb.rendition;
+
+import com.nigga.medivaultsb.model.RecordRendition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory LRU of rendered thumbnails, bounded by the total number of image bytes held.
+ * Keys are content hashes, so an entry never goes stale; eviction only reclaims memory.
+ */
+@Component
+public class RenditionCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, RecordRendition> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+
+    public RenditionCache(@Value("${medivault.renditions.cache-max-bytes:33554432}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized RecordRendition get(String storageKey) {
+        return entries.get(storageKey);
+    }
+
+    public synchronized void put(RecordRendition rendition) {
+        long size = rendition.getData().length;
+        if (size > maxBytes) {
+            return;
+        }
+
+        RecordRendition previous = entries.put(rendition.getStorageKey(), rendition);
+        if (previous != null) {
+            currentBytes -= previous.getData().length;
+        }
+        currentBytes += size;
+
+        // Access order puts the least recently used entries first
+        Iterator<Map.Entry<String, RecordRendition>> iterator = entries.entrySet().iterator();
+        while (currentBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, RecordRendition> eldest = iterator.next();
+            if (eldest.getKey().equals(rendition.getStorageKey())) {
+                continue;
+            }
+            currentBytes -= eldest.getValue().getData().length;
+            iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.nigga.medivaultsb.rendition;
+
+import com.nigga.medivaultsb.model.RecordRendition;
+import com.nigga.medivaultsb.storage.ContentAddressedRecordStore;
+import com.nigga.medivaultsb.storage.RecordFile;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Optional;
+
+/**
+ * Renders a small JPEG preview of an image or of the first page of a PDF. Sources are decoded
+ * at reduced resolution where the format allows it, so memory use tracks the thumbnail size
+ * rather than the size of the original.
+ */
+@Component
+public class ThumbnailRenderer {
+
+    private static final String THUMBNAIL_CONTENT_TYPE = MediaType.IMAGE_JPEG_VALUE;
+
+    @Autowired
+    private ContentAddressedRecordStore contentAddressedRecordStore;
+
+    @Value("${medivault.renditions.max-dimension:256}")
+    private int maxDimension;
+
+    @Value("${medivault.renditions.max-source-pixels:50000000}")
+    private long maxSourcePixels;
+
+    @Value("${medivault.renditions.jpeg-quality:0.8}")
+    private float jpegQuality;
+
+    /**
+     * @return the thumbnail, or empty when the content type has no preview
+     */
+    public Optional<RecordRendition> render(RecordFile file) throws IOException {
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(file.contentType());
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+
+        BufferedImage source;
+        if (MediaType.APPLICATION_PDF.includes(mediaType)) {
+            source = renderFirstPage(file);
+        } else if ("image".equals(mediaType.getType())) {
+            source = decodeImage(file);
+        } else {
+            return Optional.empty();
+        }
+        if (source == null) {
+            return Optional.empty();
+        }
+
+        BufferedImage thumbnail = scaleToFit(source);
+        RecordRendition rendition = new RecordRendition();
+        rendition.setStorageKey(file.storageKey());
+        rendition.setContentType(THUMBNAIL_CONTENT_TYPE);
+        rendition.setData(encodeJpeg(thumbnail));
+        rendition.setWidth(thumbnail.getWidth());
+        rendition.setHeight(thumbnail.getHeight());
+        return Optional.of(rendition);
+    }
+
+    private BufferedImage decodeImage(RecordFile file) throws IOException {
+        try (InputStream inputStream = contentAddressedRecordStore.open(file);
+             ImageInputStream imageInput = ImageIO.createImageInputStream(inputStream)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInput);
+            if (!readers.hasNext()) {
+                // A format ImageIO cannot decode, such as HEIC
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInput, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxSourcePixels) {
+                    throw new IOException("Image is too large to preview: " + width + "x" + height);
+                }
+
+                // Subsampling skips pixels while decoding instead of allocating the full raster
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.min(width, height) / (maxDimension * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage renderFirstPage(RecordFile file) throws IOException {
+        // PDFBox needs random access, so spool the decompressed payload to disk rather than the heap
+        Path spool = Files.createTempFile("medivault-preview-", ".pdf");
+        try {
+            try (InputStream inputStream = contentAddressedRecordStore.open(file)) {
+                Files.copy(inputStream, spool, StandardCopyOption.REPLACE_EXISTING);
+            }
+            try (PDDocument document = Loader.loadPDF(spool.toFile())) {
+                if (document.getNumberOfPages() == 0) {
+                    return null;
+                }
+                PDRectangle box = document.getPage(0).getCropBox();
+                float scale = Math.min(maxDimension / box.getWidth(), maxDimension / box.getHeight());
+                return new PDFRenderer(document).renderImage(0, scale, ImageType.RGB);
+            }
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    private BufferedImage scaleToFit(BufferedImage source) {
+        double scale = Math.min(1.0, Math.min(
+                (double) maxDimension / source.getWidth(),
+                (double) maxDimension / source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        // JPEG has no alpha channel, so transparent areas are flattened onto white
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(outputStream)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(imageOutput);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return outputStream.toByteArray();
+    }
+}
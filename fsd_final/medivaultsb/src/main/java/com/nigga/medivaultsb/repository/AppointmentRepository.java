@@ -2,16 +2,98 @@ package com.nigga.medivaultsb.repository;
 
 import com.nigga.medivaultsb.model.Appointment;
 import com.nigga.medivaultsb.model.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+    // Every listing is turned into DTOs that include both parties, so both are fetched in the same query
+    @EntityGraph(attributePaths = {"patient", "doctor"})
     List<Appointment> findByPatientOrderByAppointmentTimeAsc(User patient);
+    
+    @EntityGraph(attributePaths = {"patient", "doctor"})
     List<Appointment> findByDoctorOrderByAppointmentTimeAsc(User doctor);
+    
+    @EntityGraph(attributePaths = {"patient", "doctor"})
     List<Appointment> findByPatientAndAppointmentTimeGreaterThanEqualOrderByAppointmentTimeAsc(User patient, LocalDateTime now);
+    
+    @EntityGraph(attributePaths = {"patient", "doctor"})
     List<Appointment> findByDoctorAndAppointmentTimeGreaterThanEqualOrderByAppointmentTimeAsc(User doctor, LocalDateTime now);
+    
+    // Ownership check for bulk updates: only the caller's appointments come back
+    @Query("SELECT a FROM Appointment a JOIN FETCH a.patient WHERE a.id IN :ids AND a.doctor = :doctor")
+    List<Appointment> findByIdInAndDoctor(@Param("ids") Collection<Long> ids, @Param("doctor") User doctor);
+    
+    @Query("SELECT a.id AS id, a.appointmentTime AS appointmentTime FROM Appointment a " +
+           "WHERE a.status = :status AND a.appointmentTime > :from")
+    List<AppointmentTimeRow> findUpcomingByStatus(@Param("status") String status, @Param("from") LocalDateTime from);
+    
+    // A doctor's patients, one row each, most recently seen first; namePattern is a LIKE pattern on the lower-cased name
+    @Query(value = "SELECT a.patient.id AS patientId, MAX(a.appointmentTime) AS lastVisit FROM Appointment a " +
+                   "WHERE a.doctor.id = :doctorId AND LOWER(a.patient.name) LIKE :namePattern ESCAPE '\\' " +
+                   "GROUP BY a.patient.id ORDER BY MAX(a.appointmentTime) DESC, a.patient.id DESC",
+           countQuery = "SELECT COUNT(DISTINCT a.patient.id) FROM Appointment a " +
+                        "WHERE a.doctor.id = :doctorId AND LOWER(a.patient.name) LIKE :namePattern ESCAPE '\\'")
+    Page<PatientRosterRow> findPatientRoster(@Param("doctorId") Long doctorId,
+                                             @Param("namePattern") String namePattern,
+                                             Pageable pageable);
+    
+    @Query("SELECT a.appointmentTime FROM Appointment a WHERE a.doctor.id = :doctorId " +
+           "AND a.status IN :statuses AND a.appointmentTime >= :from")
+    List<LocalDateTime> findActiveAppointmentTimes(@Param("doctorId") Long doctorId,
+                                                   @Param("statuses") Collection<String> statuses,
+                                                   @Param("from") LocalDateTime from);
+    
+    // Keyset pages in appointment time order; each fetches limit + 1 rows to detect a following page
+    @EntityGraph(attributePaths = {"patient", "doctor"})
+    List<Appointment> findByPatientOrderByAppointmentTimeAscIdAsc(User patient, Limit limit);
+    
+    @EntityGraph(attributePaths = {"patient", "doctor"})
+    List<Appointment> findByDoctorOrderByAppointmentTimeAscIdAsc(User doctor, Limit limit);
+    
+    @EntityGraph(attributePaths = {"patient", "doctor"})
+    @Query("SELECT a FROM Appointment a WHERE a.patient = :patient " +
+           "AND (a.appointmentTime > :appointmentTime OR (a.appointmentTime = :appointmentTime AND a.id > :id)) " +
+           "ORDER BY a.appointmentTime ASC, a.id ASC")
+    List<Appointment> findPatientAppointmentsAfter(@Param("patient") User patient,
+                                                   @Param("appointmentTime") LocalDateTime appointmentTime,
+                                                   @Param("id") Long id,
+                                                   Limit limit);
+    
+    @EntityGraph(attributePaths = {"patient", "doctor"})
+    @Query("SELECT a FROM Appointment a WHERE a.patient = :patient " +
+           "AND (a.appointmentTime < :appointmentTime OR (a.appointmentTime = :appointmentTime AND a.id < :id)) " +
+           "ORDER BY a.appointmentTime DESC, a.id DESC")
+    List<Appointment> findPatientAppointmentsBefore(@Param("patient") User patient,
+                                                    @Param("appointmentTime") LocalDateTime appointmentTime,
+                                                    @Param("id") Long id,
+                                                    Limit limit);
+    
+    @EntityGraph(attributePaths = {"patient", "doctor"})
+    @Query("SELECT a FROM Appointment a WHERE a.doctor = :doctor " +
+           "AND (a.appointmentTime > :appointmentTime OR (a.appointmentTime = :appointmentTime AND a.id > :id)) " +
+           "ORDER BY a.appointmentTime ASC, a.id ASC")
+    List<Appointment> findDoctorAppointmentsAfter(@Param("doctor") User doctor,
+                                                  @Param("appointmentTime") LocalDateTime appointmentTime,
+                                                  @Param("id") Long id,
+                                                  Limit limit);
+    
+    @EntityGraph(attributePaths = {"patient", "doctor"})
+    @Query("SELECT a FROM Appointment a WHERE a.doctor = :doctor " +
+           "AND (a.appointmentTime < :appointmentTime OR (a.appointmentTime = :appointmentTime AND a.id < :id)) " +
+           "ORDER BY a.appointmentTime DESC, a.id DESC")
+    List<Appointment> findDoctorAppointmentsBefore(@Param("doctor") User doctor,
+                                                   @Param("appointmentTime") LocalDateTime appointmentTime,
+                                                   @Param("id") Long id,
+                                                   Limit limit);
 } 
\ No newline at end of file
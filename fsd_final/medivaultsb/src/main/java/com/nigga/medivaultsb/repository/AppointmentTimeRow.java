@@ -0,0 +1,11 @@
+package com.nigga.medivaultsb.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Closed projection carrying just enough of an appointment to schedule work around it.
+ */
+public interface AppointmentTimeRow {
+    Long getId();
+    LocalDateTime getAppointmentTime();
+}
@@ -0,0 +1,40 @@
+package com.nigga.medivaultsb.repository;
+
+import com.nigga.medivaultsb.model.ChatConversation;
+import com.nigga.medivaultsb.model.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ChatConversationRepository extends JpaRepository<ChatConversation, Long> {
+    
+    // Keyset pages of a user's inbox, most recent conversation first; each fetches limit + 1 rows
+    @EntityGraph(attributePaths = {"partner"})
+    List<ChatConversation> findByUserIdOrderByLastMessageAtDescIdDesc(Long userId, Limit limit);
+    
+    @EntityGraph(attributePaths = {"partner"})
+    @Query("SELECT c FROM ChatConversation c WHERE c.user.id = :userId " +
+           "AND (c.lastMessageAt < :lastMessageAt OR (c.lastMessageAt = :lastMessageAt AND c.id < :id)) " +
+           "ORDER BY c.lastMessageAt DESC, c.id DESC")
+    List<ChatConversation> findInboxAfter(@Param("userId") Long userId,
+                                          @Param("lastMessageAt") LocalDateTime lastMessageAt,
+                                          @Param("id") Long id,
+                                          Limit limit);
+    
+    @EntityGraph(attributePaths = {"partner"})
+    @Query("SELECT c FROM ChatConversation c WHERE c.user.id = :userId " +
+           "AND (c.lastMessageAt > :lastMessageAt OR (c.lastMessageAt = :lastMessageAt AND c.id > :id)) " +
+           "ORDER BY c.lastMessageAt ASC, c.id ASC")
+    List<ChatConversation> findInboxBefore(@Param("userId") Long userId,
+                                           @Param("lastMessageAt") LocalDateTime lastMessageAt,
+                                           @Param("id") Long id,
+                                           Limit limit);
+    
+    @Query("SELECT c.partner FROM ChatConversation c WHERE c.user.id = :userId ORDER BY c.lastMessageAt DESC")
+    List<User> findPartnersByUserId(@Param("userId") Long userId);
+}
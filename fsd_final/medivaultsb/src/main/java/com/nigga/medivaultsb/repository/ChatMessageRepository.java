@@ -1,7 +1,7 @@
 package com.nigga.medivaultsb.repository;
 
 import com.nigga.medivaultsb.model.ChatMessage;
-import com.nigga.medivaultsb.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -10,12 +10,36 @@ import java.util.List;
 
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
     
-    @Query("SELECT m FROM ChatMessage m WHERE (m.sender.id = :userId1 AND m.receiver.id = :userId2) OR (m.sender.id = :userId2 AND m.receiver.id = :userId1) ORDER BY m.timestamp ASC")
-    List<ChatMessage> findChatMessagesBetweenUsers(@Param("userId1") Long userId1, @Param("userId2") Long userId2);
+    // Conversations are addressed by (userLowId, userHighId), the participant ids in ascending order,
+    // and read in id order so every query is a range scan of idx_chat_messages_conversation_id
+    @Query("SELECT m FROM ChatMessage m WHERE m.userLowId = :userLowId AND m.userHighId = :userHighId ORDER BY m.id ASC")
+    List<ChatMessage> findConversation(@Param("userLowId") Long userLowId, @Param("userHighId") Long userHighId);
 
-    @Query("SELECT DISTINCT CASE WHEN m.sender.id = :userId THEN m.receiver ELSE m.sender END FROM ChatMessage m WHERE m.sender.id = :userId OR m.receiver.id = :userId")
-    List<User> findChatPartnersForUser(@Param("userId") Long userId);
+    @Query("SELECT m FROM ChatMessage m WHERE m.userLowId = :userLowId AND m.userHighId = :userHighId ORDER BY m.id DESC")
+    List<ChatMessage> findLatestInConversation(@Param("userLowId") Long userLowId, @Param("userHighId") Long userHighId,
+                                               Limit limit);
 
-    @Query("SELECT COUNT(m) FROM ChatMessage m WHERE m.receiver.id = :userId AND m.isRead = false")
+    @Query("SELECT m FROM ChatMessage m WHERE m.userLowId = :userLowId AND m.userHighId = :userHighId AND m.id > :afterId " +
+           "ORDER BY m.id ASC")
+    List<ChatMessage> findInConversationAfter(@Param("userLowId") Long userLowId, @Param("userHighId") Long userHighId,
+                                              @Param("afterId") Long afterId, Limit limit);
+
+    @Query("SELECT m FROM ChatMessage m WHERE m.userLowId = :userLowId AND m.userHighId = :userHighId AND m.id < :beforeId " +
+           "ORDER BY m.id DESC")
+    List<ChatMessage> findInConversationBefore(@Param("userLowId") Long userLowId, @Param("userHighId") Long userHighId,
+                                               @Param("beforeId") Long beforeId, Limit limit);
+
+    // Messages past the receiver's read watermark for their sender
+    @Query(value = "SELECT COUNT(*) FROM chat_messages m " +
+                   "LEFT JOIN chat_read_watermarks w ON w.user_id = m.receiver_id AND w.partner_id = m.sender_id " +
+                   "WHERE m.receiver_id = :userId AND m.id > COALESCE(w.last_read_id, 0)",
+           nativeQuery = true)
     Long countUnreadMessages(@Param("userId") Long userId);
+
+    @Query(value = "SELECT m.receiver_id AS receiverId, m.sender_id AS senderId, COUNT(*) AS unread FROM chat_messages m " +
+                   "LEFT JOIN chat_read_watermarks w ON w.user_id = m.receiver_id AND w.partner_id = m.sender_id " +
+                   "WHERE m.id > COALESCE(w.last_read_id, 0) " +
+                   "GROUP BY m.receiver_id, m.sender_id",
+           nativeQuery = true)
+    List<UnreadCountRow> countAllUnreadMessages();
 } 
\ No newline at end of file
@@ -0,0 +1,57 @@
+package com.nigga.medivaultsb.repository;
+
+import com.nigga.medivaultsb.model.EmailOutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    // Claims due messages, plus ones whose previous claim expired, without blocking other dispatchers
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE email_outbox SET status = 'SENDING', claim_token = :token, locked_until = :lockedUntil, " +
+            "attempts = attempts + 1 WHERE id IN (" +
+            "SELECT id FROM email_outbox WHERE (status = 'PENDING' AND next_attempt_at <= :now) " +
+            "OR (status = 'SENDING' AND locked_until < :now) " +
+            "ORDER BY next_attempt_at, id LIMIT :batchSize FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    int claimBatch(@Param("token") String token,
+                   @Param("now") LocalDateTime now,
+                   @Param("lockedUntil") LocalDateTime lockedUntil,
+                   @Param("batchSize") int batchSize);
+
+    List<EmailOutboxMessage> findByClaimToken(String claimToken);
+
+    // Every update below is conditional on the claim, so a run whose lease expired cannot overwrite a newer one
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE email_outbox SET status = 'SENT', sent_at = :now, claim_token = NULL, locked_until = NULL, " +
+            "last_error = NULL WHERE id IN (:ids) AND claim_token = :token", nativeQuery = true)
+    int markSent(@Param("ids") Collection<Long> ids, @Param("token") String token, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE email_outbox SET status = 'PENDING', next_attempt_at = :nextAttemptAt, claim_token = NULL, " +
+            "locked_until = NULL, last_error = :error WHERE id = :id AND claim_token = :token", nativeQuery = true)
+    int scheduleRetry(@Param("id") Long id, @Param("token") String token,
+                      @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("error") String error);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE email_outbox SET status = 'DEAD', claim_token = NULL, locked_until = NULL, " +
+            "last_error = :error WHERE id = :id AND claim_token = :token", nativeQuery = true)
+    int markDead(@Param("id") Long id, @Param("token") String token, @Param("error") String error);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM email_outbox WHERE status = 'SENT' AND sent_at < :cutoff", nativeQuery = true)
+    int deleteSentBefore(@Param("cutoff") LocalDateTime cutoff);
+}
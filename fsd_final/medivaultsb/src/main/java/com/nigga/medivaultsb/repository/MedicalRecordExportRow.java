@@ -0,0 +1,9 @@
+package com.nigga.medivaultsb.repository;
+
+/**
+ * Record metadata plus what is needed to read its payload back from storage.
+ */
+public interface MedicalRecordExportRow extends MedicalRecordSummary {
+    String getStorageKey();
+    String getCodec();
+}
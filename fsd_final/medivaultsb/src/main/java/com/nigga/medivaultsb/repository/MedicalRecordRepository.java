@@ -2,12 +2,64 @@ package com.nigga.medivaultsb.repository;
 
 import com.nigga.medivaultsb.model.MedicalRecord;
 import com.nigga.medivaultsb.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface MedicalRecordRepository extends JpaRepository<MedicalRecord, Long> {
     List<MedicalRecord> findByPatientOrderByUploadedAtDesc(User patient);
+    List<MedicalRecordSummary> findSummariesByPatientIdOrderByUploadedAtDesc(Long patientId);
+    
+    String SUMMARY_COLUMNS =
+            "r.id AS id, r.title AS title, r.doctorName AS doctorName, r.recordType AS recordType, " +
+            "r.description AS description, r.fileName AS fileName, r.contentType AS contentType, " +
+            "r.fileSize AS fileSize, r.uploadedAt AS uploadedAt ";
+    
+    String EXPORT_ROW_SELECT =
+            "SELECT " + SUMMARY_COLUMNS + ", r.storageKey AS storageKey, b.codec AS codec " +
+            "FROM MedicalRecord r JOIN r.blob b ";
+    
+    // Keyset pages, newest first; each fetches limit + 1 rows to detect a following page
+    List<MedicalRecordSummary> findSummariesByPatientIdOrderByUploadedAtDescIdDesc(Long patientId, Limit limit);
+    
+    @Query("SELECT " + SUMMARY_COLUMNS + "FROM MedicalRecord r WHERE r.patient.id = :patientId " +
+           "AND (r.uploadedAt < :uploadedAt OR (r.uploadedAt = :uploadedAt AND r.id < :id)) " +
+           "ORDER BY r.uploadedAt DESC, r.id DESC")
+    List<MedicalRecordSummary> findSummariesAfter(@Param("patientId") Long patientId,
+                                                  @Param("uploadedAt") LocalDateTime uploadedAt,
+                                                  @Param("id") Long id,
+                                                  Limit limit);
+    
+    @Query("SELECT " + SUMMARY_COLUMNS + "FROM MedicalRecord r WHERE r.patient.id = :patientId " +
+           "AND (r.uploadedAt > :uploadedAt OR (r.uploadedAt = :uploadedAt AND r.id > :id)) " +
+           "ORDER BY r.uploadedAt ASC, r.id ASC")
+    List<MedicalRecordSummary> findSummariesBefore(@Param("patientId") Long patientId,
+                                                   @Param("uploadedAt") LocalDateTime uploadedAt,
+                                                   @Param("id") Long id,
+                                                   Limit limit);
+    
+    @Query(EXPORT_ROW_SELECT + "WHERE r.patient.id = :patientId ORDER BY r.uploadedAt DESC")
+    List<MedicalRecordExportRow> findExportRowsByPatientId(@Param("patientId") Long patientId);
+    
+    @Query(EXPORT_ROW_SELECT + "WHERE r.id = :id")
+    Optional<MedicalRecordExportRow> findExportRowById(@Param("id") Long id);
+    
+    List<MedicalRecordSummary> findSummariesByIdIn(Collection<Long> ids);
+    
+    // Ranked full-text match against medical_record_search, maintained by RecordSearchIndexer
+    @Query(value = "SELECT s.record_id FROM medical_record_search s, websearch_to_tsquery('english', :query) q " +
+            "WHERE s.patient_id = :patientId AND s.document @@ q " +
+            "ORDER BY ts_rank_cd(s.document, q) DESC, s.record_id DESC " +
+            "LIMIT :limit", nativeQuery = true)
+    List<Long> searchRecordIds(@Param("patientId") Long patientId,
+                               @Param("query") String query,
+                               @Param("limit") int limit);
 } 
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.nigga.medivaultsb.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Closed projection over {@code medical_records}: queries returning it select only these
+ * metadata columns and never touch the patient or the stored payload.
+ */
+public interface MedicalRecordSummary {
+    Long getId();
+    String getTitle();
+    String getDoctorName();
+    String getRecordType();
+    String getDescription();
+    String getFileName();
+    String getContentType();
+    Long getFileSize();
+    LocalDateTime getUploadedAt();
+}
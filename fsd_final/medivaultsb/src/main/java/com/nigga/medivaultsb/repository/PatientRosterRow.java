@@ -0,0 +1,11 @@
+package com.nigga.medivaultsb.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * One patient on a doctor's roster, with the time of their latest appointment with that doctor.
+ */
+public interface PatientRosterRow {
+    Long getPatientId();
+    LocalDateTime getLastVisit();
+}
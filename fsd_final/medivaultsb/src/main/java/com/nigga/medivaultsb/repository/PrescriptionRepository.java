@@ -2,13 +2,65 @@ package com.nigga.medivaultsb.repository;
 
 import com.nigga.medivaultsb.model.Prescription;
 import com.nigga.medivaultsb.model.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface PrescriptionRepository extends JpaRepository<Prescription, Long> {
+    // Prescription DTOs include the prescribing doctor, so every listing fetches it in the same query
+    @EntityGraph(attributePaths = {"doctor"})
     List<Prescription> findByPatientOrderByPrescribedAtDesc(User patient);
+    
+    @EntityGraph(attributePaths = {"doctor"})
     List<Prescription> findByDoctorOrderByPrescribedAtDesc(User doctor);
+    
+    // Keyset pages, newest first; each fetches limit + 1 rows to detect a following page
+    @EntityGraph(attributePaths = {"doctor"})
+    List<Prescription> findByPatientOrderByPrescribedAtDescIdDesc(User patient, Limit limit);
+    
+    @EntityGraph(attributePaths = {"doctor"})
+    List<Prescription> findByDoctorOrderByPrescribedAtDescIdDesc(User doctor, Limit limit);
+    
+    @EntityGraph(attributePaths = {"doctor"})
+    @Query("SELECT p FROM Prescription p WHERE p.patient = :patient " +
+           "AND (p.prescribedAt < :prescribedAt OR (p.prescribedAt = :prescribedAt AND p.id < :id)) " +
+           "ORDER BY p.prescribedAt DESC, p.id DESC")
+    List<Prescription> findPatientPrescriptionsAfter(@Param("patient") User patient,
+                                                     @Param("prescribedAt") LocalDateTime prescribedAt,
+                                                     @Param("id") Long id,
+                                                     Limit limit);
+    
+    @EntityGraph(attributePaths = {"doctor"})
+    @Query("SELECT p FROM Prescription p WHERE p.patient = :patient " +
+           "AND (p.prescribedAt > :prescribedAt OR (p.prescribedAt = :prescribedAt AND p.id > :id)) " +
+           "ORDER BY p.prescribedAt ASC, p.id ASC")
+    List<Prescription> findPatientPrescriptionsBefore(@Param("patient") User patient,
+                                                      @Param("prescribedAt") LocalDateTime prescribedAt,
+                                                      @Param("id") Long id,
+                                                      Limit limit);
+    
+    @EntityGraph(attributePaths = {"doctor"})
+    @Query("SELECT p FROM Prescription p WHERE p.doctor = :doctor " +
+           "AND (p.prescribedAt < :prescribedAt OR (p.prescribedAt = :prescribedAt AND p.id < :id)) " +
+           "ORDER BY p.prescribedAt DESC, p.id DESC")
+    List<Prescription> findDoctorPrescriptionsAfter(@Param("doctor") User doctor,
+                                                    @Param("prescribedAt") LocalDateTime prescribedAt,
+                                                    @Param("id") Long id,
+                                                    Limit limit);
+    
+    @EntityGraph(attributePaths = {"doctor"})
+    @Query("SELECT p FROM Prescription p WHERE p.doctor = :doctor " +
+           "AND (p.prescribedAt > :prescribedAt OR (p.prescribedAt = :prescribedAt AND p.id > :id)) " +
+           "ORDER BY p.prescribedAt ASC, p.id ASC")
+    List<Prescription> findDoctorPrescriptionsBefore(@Param("doctor") User doctor,
+                                                     @Param("prescribedAt") LocalDateTime prescribedAt,
+                                                     @Param("id") Long id,
+                                                     Limit limit);
 } 
\ No newline at end of file
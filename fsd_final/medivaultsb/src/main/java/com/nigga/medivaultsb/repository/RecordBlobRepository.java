@@ -0,0 +1,34 @@
+package com.nigga.medivaultsb.repository;
+
+import com.nigga.medivaultsb.model.RecordBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RecordBlobRepository extends JpaRepository<RecordBlob, String> {
+
+    @Modifying
+    @Query(value = "UPDATE record_blobs SET ref_count = ref_count + 1 WHERE content_hash = :hash", nativeQuery = true)
+    int incrementRefCount(@Param("hash") String contentHash);
+
+    // Returns 0 when another transaction already claimed the hash; it blocks until that one commits
+    @Modifying
+    @Query(value = "INSERT INTO record_blobs (content_hash, size, codec, ref_count, created_at) " +
+            "VALUES (:hash, :size, :codec, 1, now()) ON CONFLICT (content_hash) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("hash") String contentHash, @Param("size") long size, @Param("codec") String codec);
+
+    @Modifying
+    @Query(value = "UPDATE record_blobs SET stored_size = :storedSize WHERE content_hash = :hash", nativeQuery = true)
+    int updateStoredSize(@Param("hash") String contentHash, @Param("storedSize") long storedSize);
+
+    @Modifying
+    @Query(value = "UPDATE record_blobs SET ref_count = ref_count - 1 WHERE content_hash = :hash", nativeQuery = true)
+    int decrementRefCount(@Param("hash") String contentHash);
+
+    @Modifying
+    @Query(value = "DELETE FROM record_blobs WHERE content_hash = :hash AND ref_count <= 0", nativeQuery = true)
+    int deleteIfUnreferenced(@Param("hash") String contentHash);
+}
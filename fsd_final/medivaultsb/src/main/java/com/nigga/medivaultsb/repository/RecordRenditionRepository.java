@@ -0,0 +1,9 @@
+package com.nigga.medivaultsb.repository;
+
+import com.nigga.medivaultsb.model.RecordRendition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RecordRenditionRepository extends JpaRepository<RecordRendition, String> {
+}
@@ -0,0 +1,10 @@
+package com.nigga.medivaultsb.repository;
+
+/**
+ * Number of unread messages a user has from one sender.
+ */
+public interface UnreadCountRow {
+    Long getReceiverId();
+    Long getSenderId();
+    Long getUnread();
+}
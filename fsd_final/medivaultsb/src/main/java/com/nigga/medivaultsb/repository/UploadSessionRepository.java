@@ -0,0 +1,13 @@
+package com.nigga.medivaultsb.repository;
+
+import com.nigga.medivaultsb.model.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+    List<UploadSession> findByCreatedAtBefore(LocalDateTime cutoff);
+}
@@ -0,0 +1,34 @@
+package com.nigga.medivaultsb.repository;
+
+import com.nigga.medivaultsb.model.User;
+import com.nigga.medivaultsb.model.WaitlistEntry;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WaitlistEntryRepository extends JpaRepository<WaitlistEntry, Long> {
+    @EntityGraph(attributePaths = {"doctor"})
+    List<WaitlistEntry> findByPatientOrderByCreatedAtDesc(User patient);
+    
+    List<WaitlistEntry> findByDoctorIdAndRequestedDateAndStatus(Long doctorId, LocalDate requestedDate, String status);
+    
+    List<WaitlistEntry> findByStatus(String status);
+    
+    boolean existsByPatientAndDoctorAndRequestedDateAndStatusIn(User patient, User doctor, LocalDate requestedDate,
+                                                                Collection<String> statuses);
+    
+    // Serializes offers, acceptances and expiries of one entry across instances
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM WaitlistEntry w WHERE w.id = :id")
+    Optional<WaitlistEntry> findByIdForUpdate(@Param("id") Long id);
+}
@@ -0,0 +1,108 @@
+package com.nigga.medivaultsb.scheduling;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Marks APPROVED appointments as FINISHED once they lie in the past, so they stop counting as
+ * upcoming and become deletable. Rows are moved in batches of set-based UPDATEs, each committed
+ * on its own, and a {@link JobLeases lease} keeps the job to one instance at a time.
+ */
+@Component
+@Slf4j
+public class AppointmentCompletionJob {
+
+    private static final String JOB_NAME = "appointment-completion";
+
+    // SKIP LOCKED leaves rows that a doctor is updating right now for the next run. The daily
+    // statistics move along in the same statement, so they never disagree with the rows.
+    private static final String FINISH_BATCH_SQL =
+            "WITH finished AS (" +
+            "UPDATE appointments SET status = 'FINISHED', updated_at = ? WHERE id IN (" +
+            "SELECT id FROM appointments WHERE status = 'APPROVED' AND appointment_time < ? " +
+            "ORDER BY appointment_time LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING doctor_id, appointment_time), " +
+            "counted AS (" +
+            "INSERT INTO appointment_daily_stats (doctor_id, day, pending, approved, rejected, finished, " +
+            "lead_minutes_sum, lead_under_1d, lead_1d_to_7d, lead_over_7d) " +
+            "SELECT doctor_id, CAST(appointment_time AS DATE), 0, -COUNT(*), 0, COUNT(*), 0, 0, 0, 0 " +
+            "FROM finished GROUP BY doctor_id, CAST(appointment_time AS DATE) " +
+            "ON CONFLICT (doctor_id, day) DO UPDATE SET " +
+            "approved = appointment_daily_stats.approved + EXCLUDED.approved, " +
+            "finished = appointment_daily_stats.finished + EXCLUDED.finished) " +
+            "SELECT COUNT(*) FROM finished";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JobLeases jobLeases;
+
+    @Value("${medivault.appointments.finish-after:1h}")
+    private Duration finishAfter;
+
+    @Value("${medivault.appointments.finish-batch-size:500}")
+    private int batchSize;
+
+    @Value("${medivault.jobs.lease:10m}")
+    private Duration lease;
+
+    private final Counter finishedCounter;
+    private final DistributionSummary finishedPerRun;
+    private final Timer runTimer;
+
+    public AppointmentCompletionJob(MeterRegistry meterRegistry) {
+        this.finishedCounter = Counter.builder("medivault.appointments.finished")
+                .description("Appointments moved to FINISHED by the completion job")
+                .register(meterRegistry);
+        this.finishedPerRun = DistributionSummary.builder("medivault.appointments.finished.per.run")
+                .description("Appointments moved to FINISHED in a single run of the completion job")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("medivault.appointments.completion.run")
+                .description("Duration of completion job runs that held the lease")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${medivault.appointments.finish-interval:300000}", initialDelay = 30000)
+    public void finishPastAppointments() {
+        if (!jobLeases.tryAcquire(JOB_NAME, lease)) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        int total = 0;
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minus(finishAfter);
+            int updated;
+            do {
+                updated = jdbcTemplate.queryForObject(FINISH_BATCH_SQL, Integer.class,
+                        Timestamp.valueOf(LocalDateTime.now()), Timestamp.valueOf(cutoff), batchSize);
+                total += updated;
+                // Renewing after every batch also stops the run once another instance took over
+            } while (updated == batchSize && jobLeases.tryAcquire(JOB_NAME, lease));
+        } catch (RuntimeException e) {
+            log.warn("Appointment completion stopped after {} appointments: {}", total, e.getMessage());
+        } finally {
+            jobLeases.release(JOB_NAME);
+            runTimer.record(Duration.ofNanos(System.nanoTime() - started));
+            finishedPerRun.record(total);
+            finishedCounter.increment(total);
+        }
+
+        if (total > 0) {
+            log.info("Marked {} past appointments as FINISHED", total);
+        }
+    }
+}
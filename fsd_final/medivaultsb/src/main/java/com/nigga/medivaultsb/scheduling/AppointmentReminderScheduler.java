@@ -0,0 +1,139 @@
+package com.nigga.medivaultsb.scheduling;
+
+import com.nigga.medivaultsb.repository.AppointmentRepository;
+import com.nigga.medivaultsb.repository.AppointmentTimeRow;
+import com.nigga.medivaultsb.service.AppointmentReminderService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one timer per reminder of every upcoming APPROVED appointment in a
+ * {@link HashedTimingWheel}, so reminders fire without polling the database. The wheel is
+ * filled from {@link AppointmentRepository} at startup and kept in sync by AppointmentService
+ * after each committed change. Reminders are queued through the email outbox under a
+ * deduplication key, so several instances firing the same reminder send it once.
+ */
+@Component
+@Slf4j
+public class AppointmentReminderScheduler {
+
+    private final HashedTimingWheel wheel;
+    private final List<Duration> offsets;
+    private final Map<Long, List<HashedTimingWheel.Timeout>> timeouts = new ConcurrentHashMap<>();
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private AppointmentReminderService appointmentReminderService;
+
+    public AppointmentReminderScheduler(@Value("${medivault.reminders.offsets:24h,1h}") List<Duration> offsets,
+                                        @Value("${medivault.reminders.tick:1m}") Duration tick,
+                                        @Value("${medivault.reminders.wheel-size:4096}") int wheelSize,
+                                        @Qualifier("reminderExecutor") TaskExecutor reminderExecutor) {
+        // Largest offset first, so reminders are listed in the order they fire
+        this.offsets = offsets.stream()
+                .sorted(Comparator.reverseOrder())
+                .toList();
+        this.wheel = new HashedTimingWheel("appointment-reminder-wheel", tick, wheelSize, reminderExecutor);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        wheel.start();
+        List<AppointmentTimeRow> upcoming = appointmentRepository.findUpcomingByStatus("APPROVED", LocalDateTime.now());
+        for (AppointmentTimeRow row : upcoming) {
+            schedule(row.getId(), row.getAppointmentTime());
+        }
+        log.info("Scheduled {} appointment reminders for {} upcoming appointments", wheel.size(), upcoming.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        wheel.stop();
+    }
+
+    /**
+     * Brings the reminders for an appointment in line with its new state once the current
+     * transaction commits: APPROVED appointments get reminders, anything else loses them.
+     */
+    public void syncAfterCommit(Long appointmentId, LocalDateTime appointmentTime, String status) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                if ("APPROVED".equals(status)) {
+                    schedule(appointmentId, appointmentTime);
+                } else {
+                    cancel(appointmentId);
+                }
+            }
+        });
+    }
+
+    public void cancelAfterCommit(Long appointmentId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cancel(appointmentId);
+            }
+        });
+    }
+
+    private void schedule(Long appointmentId, LocalDateTime appointmentTime) {
+        LocalDateTime now = LocalDateTime.now();
+        List<HashedTimingWheel.Timeout> scheduled = new ArrayList<>(offsets.size());
+        for (Duration offset : offsets) {
+            LocalDateTime fireAt = appointmentTime.minus(offset);
+            // Reminders whose moment has passed are skipped rather than sent late
+            if (fireAt.isAfter(now)) {
+                scheduled.add(wheel.schedule(
+                        () -> fire(appointmentId, appointmentTime, offset, scheduled),
+                        Duration.between(now, fireAt)));
+            }
+        }
+
+        List<HashedTimingWheel.Timeout> previous = scheduled.isEmpty()
+                ? timeouts.remove(appointmentId)
+                : timeouts.put(appointmentId, scheduled);
+        if (previous != null) {
+            previous.forEach(HashedTimingWheel.Timeout::cancel);
+        }
+    }
+
+    private void cancel(Long appointmentId) {
+        List<HashedTimingWheel.Timeout> previous = timeouts.remove(appointmentId);
+        if (previous != null) {
+            previous.forEach(HashedTimingWheel.Timeout::cancel);
+        }
+    }
+
+    private void fire(Long appointmentId, LocalDateTime appointmentTime, Duration offset,
+                      List<HashedTimingWheel.Timeout> scheduled) {
+        // The smallest offset fires last; only drop the entry if it was not rescheduled meanwhile
+        if (offset.equals(offsets.get(offsets.size() - 1))) {
+            timeouts.remove(appointmentId, scheduled);
+        }
+        try {
+            appointmentReminderService.sendReminder(appointmentId, appointmentTime, offset);
+        } catch (RuntimeException e) {
+            log.warn("Could not queue reminder for appointment {}: {}", appointmentId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.nigga.medivaultsb.scheduling;
+
+import com.nigga.medivaultsb.service.AppointmentStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Recomputes the appointment statistics from scratch, nightly and once on startup if they have
+ * never been built. This corrects any drift, for instance from appointments edited directly in
+ * the database. A {@link JobLeases lease} keeps it to one instance at a time.
+ */
+@Component
+@Slf4j
+public class AppointmentStatsRebuildJob {
+
+    private static final String JOB_NAME = "appointment-stats-rebuild";
+
+    @Autowired
+    private AppointmentStatsService appointmentStatsService;
+
+    @Autowired
+    private JobLeases jobLeases;
+
+    @Value("${medivault.jobs.lease:10m}")
+    private Duration lease;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIfMissing() {
+        try {
+            if (appointmentStatsService.isEmpty()) {
+                rebuild();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not check the appointment statistics: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(cron = "${medivault.analytics.rebuild-cron:0 30 3 * * *}")
+    public void rebuild() {
+        if (!jobLeases.tryAcquire(JOB_NAME, lease)) {
+            return;
+        }
+        try {
+            appointmentStatsService.rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Rebuilding the appointment statistics failed: {}", e.getMessage());
+        } finally {
+            jobLeases.release(JOB_NAME);
+        }
+    }
+}
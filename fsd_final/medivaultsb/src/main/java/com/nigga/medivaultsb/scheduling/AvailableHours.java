@@ -0,0 +1,154 @@
+package com.nigga.medivaultsb.scheduling;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Weekly opening hours parsed from the free-text {@code User.availableHours} field, for example
+ * {@code "Mon-Fri 9AM-5PM"}, {@code "Mon, Wed 9:30-13:00; Sat 10am-2pm"} or {@code "Daily 8AM-4PM"}.
+ */
+public final class AvailableHours {
+
+    private static final String TIME = "\\d{1,2}(?::\\d{2})?\\s*(?:[AaPp]\\.?[Mm]\\.?)?";
+
+    private static final Pattern SEGMENT = Pattern.compile(
+            "([A-Za-z][A-Za-z,&\\s\\-]*?)\\s*:?\\s*(" + TIME + ")\\s*(?:-|\\u2013|to)\\s*(" + TIME + ")");
+
+    private static final Pattern TIME_PARTS = Pattern.compile(
+            "(\\d{1,2})(?::(\\d{2}))?\\s*(?:([AaPp])\\.?[Mm]\\.?)?");
+
+    public record TimeRange(LocalTime start, LocalTime end) {
+    }
+
+    private final Map<DayOfWeek, List<TimeRange>> ranges;
+
+    private AvailableHours(Map<DayOfWeek, List<TimeRange>> ranges) {
+        this.ranges = ranges;
+    }
+
+    public List<TimeRange> rangesOn(DayOfWeek day) {
+        return ranges.getOrDefault(day, List.of());
+    }
+
+    public static AvailableHours parse(String text) {
+        if (text == null || text.isBlank()) {
+            throw new RuntimeException("Doctor has not set available hours");
+        }
+
+        Map<DayOfWeek, List<TimeRange>> ranges = new EnumMap<>(DayOfWeek.class);
+        Matcher matcher = SEGMENT.matcher(text);
+        while (matcher.find()) {
+            List<DayOfWeek> days = parseDays(matcher.group(1));
+            LocalTime start = parseTime(matcher.group(2));
+            LocalTime end = parseTime(matcher.group(3));
+            // Overnight ranges are not supported
+            if (days.isEmpty() || start == null || end == null || !end.isAfter(start)) {
+                continue;
+            }
+            for (DayOfWeek day : days) {
+                ranges.computeIfAbsent(day, d -> new ArrayList<>()).add(new TimeRange(start, end));
+            }
+        }
+
+        if (ranges.isEmpty()) {
+            throw new RuntimeException("Doctor's available hours are not in a recognised format");
+        }
+        return new AvailableHours(ranges);
+    }
+
+    private static List<DayOfWeek> parseDays(String text) {
+        String normalized = text.trim().toLowerCase(Locale.ROOT);
+        switch (normalized) {
+            case "daily", "everyday", "every day", "all week" -> {
+                return List.of(DayOfWeek.values());
+            }
+            case "weekdays" -> {
+                return daysBetween(DayOfWeek.MONDAY, DayOfWeek.FRIDAY);
+            }
+            case "weekends" -> {
+                return List.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+            }
+            default -> {
+            }
+        }
+
+        List<DayOfWeek> days = new ArrayList<>();
+        for (String token : normalized.split("\\s*(?:,|&|\\band\\b)\\s*|\\s+")) {
+            if (token.isBlank()) {
+                continue;
+            }
+            String[] bounds = token.split("\\s*-\\s*");
+            DayOfWeek first = parseDay(bounds[0]);
+            if (first == null) {
+                return List.of();
+            }
+            if (bounds.length == 2) {
+                DayOfWeek last = parseDay(bounds[1]);
+                if (last == null) {
+                    return List.of();
+                }
+                days.addAll(daysBetween(first, last));
+            } else {
+                days.add(first);
+            }
+        }
+        return days;
+    }
+
+    private static DayOfWeek parseDay(String token) {
+        if (token.length() < 3) {
+            return null;
+        }
+        return switch (token.substring(0, 3)) {
+            case "mon" -> DayOfWeek.MONDAY;
+            case "tue" -> DayOfWeek.TUESDAY;
+            case "wed" -> DayOfWeek.WEDNESDAY;
+            case "thu" -> DayOfWeek.THURSDAY;
+            case "fri" -> DayOfWeek.FRIDAY;
+            case "sat" -> DayOfWeek.SATURDAY;
+            case "sun" -> DayOfWeek.SUNDAY;
+            default -> null;
+        };
+    }
+
+    // Wraps around the week, so "Sat-Mon" covers Saturday, Sunday and Monday
+    private static List<DayOfWeek> daysBetween(DayOfWeek first, DayOfWeek last) {
+        List<DayOfWeek> days = new ArrayList<>();
+        DayOfWeek day = first;
+        days.add(day);
+        while (day != last) {
+            day = day.plus(1);
+            days.add(day);
+        }
+        return days;
+    }
+
+    private static LocalTime parseTime(String text) {
+        Matcher matcher = TIME_PARTS.matcher(text.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        int hour = Integer.parseInt(matcher.group(1));
+        int minute = matcher.group(2) != null ? Integer.parseInt(matcher.group(2)) : 0;
+        String meridiem = matcher.group(3);
+
+        if (meridiem != null) {
+            if (hour < 1 || hour > 12) {
+                return null;
+            }
+            boolean pm = meridiem.equalsIgnoreCase("p");
+            hour = hour % 12 + (pm ? 12 : 0);
+        }
+        if (hour > 23 || minute > 59) {
+            return null;
+        }
+        return LocalTime.of(hour, minute);
+    }
+}
@@ -0,0 +1,171 @@
+package com.nigga.medivaultsb.scheduling;
+
+import com.nigga.medivaultsb.repository.AppointmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory index of each doctor's booked slots, used to reject overlapping appointments in
+ * O(log n) before anything reaches the database. A doctor's slots are loaded from
+ * {@link AppointmentRepository} on first use. Each doctor hashes to one of a fixed set of
+ * locks, so bookings for different doctors rarely contend.
+ *
+ * <p>The index only sees bookings made through this instance; the partial unique index on
+ * {@code appointments (doctor_id, appointment_time)} still guards exact duplicates across nodes.
+ * Each slot keeps a count of the bookings holding it, so duplicates that predate that index
+ * stay occupied until the last of them is released.
+ */
+@Component
+public class DoctorSlotIndex {
+
+    // Appointments in these statuses occupy their slot; HELD slots are reserved for a waitlisted patient
+    public static final Set<String> ACTIVE_STATUSES = Set.of("PENDING", "APPROVED", "HELD");
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    private final Duration slotDuration;
+    private final ReentrantLock[] stripes;
+    // Slot start time to the number of active bookings holding it
+    private final Map<Long, TreeMap<LocalDateTime, Integer>> bookedSlots = new ConcurrentHashMap<>();
+
+    public DoctorSlotIndex(@Value("${medivault.appointments.slot-duration:30m}") Duration slotDuration,
+                           @Value("${medivault.appointments.lock-stripes:64}") int lockStripes) {
+        this.slotDuration = slotDuration;
+        // A power of two, so a stripe can be picked with a mask
+        int size = Integer.highestOneBit(Math.max(1, lockStripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public Duration getSlotDuration() {
+        return slotDuration;
+    }
+
+    public static boolean isActive(String status) {
+        return status != null && ACTIVE_STATUSES.contains(status);
+    }
+
+    /**
+     * Claims the slot starting at {@code time} for the current transaction. The claim is
+     * withdrawn automatically if the transaction does not commit.
+     *
+     * @throws RuntimeException if the slot overlaps one the doctor already has
+     */
+    public void reserve(Long doctorId, LocalDateTime time) {
+        ReentrantLock lock = stripeFor(doctorId);
+        lock.lock();
+        try {
+            TreeMap<LocalDateTime, Integer> slots = slotsFor(doctorId);
+            if (overlaps(slots, time)) {
+                throw new RuntimeException("Doctor already has an appointment at this time");
+            }
+            slots.merge(time, 1, Integer::sum);
+        } finally {
+            lock.unlock();
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    remove(doctorId, time);
+                }
+            }
+        });
+    }
+
+    /**
+     * Frees the slot once the current transaction commits.
+     */
+    public void releaseAfterCommit(Long doctorId, LocalDateTime time) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remove(doctorId, time);
+            }
+        });
+    }
+
+    /**
+     * Filters candidate slot start times down to those that do not overlap a booking.
+     */
+    public List<LocalDateTime> freeAmong(Long doctorId, List<LocalDateTime> candidates) {
+        ReentrantLock lock = stripeFor(doctorId);
+        lock.lock();
+        try {
+            TreeMap<LocalDateTime, Integer> slots = slotsFor(doctorId);
+            List<LocalDateTime> free = new ArrayList<>();
+            for (LocalDateTime candidate : candidates) {
+                if (!overlaps(slots, candidate)) {
+                    free.add(candidate);
+                }
+            }
+            return free;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(Long doctorId, LocalDateTime time) {
+        ReentrantLock lock = stripeFor(doctorId);
+        lock.lock();
+        try {
+            TreeMap<LocalDateTime, Integer> slots = bookedSlots.get(doctorId);
+            if (slots != null) {
+                // Drops the slot once no booking holds it any more
+                slots.computeIfPresent(time, (slot, count) -> count > 1 ? count - 1 : null);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller must hold the doctor's stripe
+    private TreeMap<LocalDateTime, Integer> slotsFor(Long doctorId) {
+        LocalDateTime horizon = LocalDateTime.now().minus(slotDuration);
+        TreeMap<LocalDateTime, Integer> slots = bookedSlots.get(doctorId);
+        if (slots == null) {
+            slots = new TreeMap<>();
+            for (LocalDateTime time : appointmentRepository.findActiveAppointmentTimes(doctorId, ACTIVE_STATUSES, horizon)) {
+                slots.merge(time, 1, Integer::sum);
+            }
+            bookedSlots.put(doctorId, slots);
+        } else {
+            // Slots that have already ended can no longer conflict with anything
+            slots.headMap(horizon).clear();
+        }
+        return slots;
+    }
+
+    // Two slots overlap when their start times are less than one slot duration apart
+    private boolean overlaps(TreeMap<LocalDateTime, Integer> slots, LocalDateTime time) {
+        LocalDateTime previous = slots.floorKey(time);
+        if (previous != null && previous.plus(slotDuration).isAfter(time)) {
+            return true;
+        }
+        LocalDateTime next = slots.ceilingKey(time);
+        return next != null && next.isBefore(time.plus(slotDuration));
+    }
+
+    private ReentrantLock stripeFor(Long doctorId) {
+        int hash = Long.hashCode(doctorId);
+        hash ^= hash >>> 16;
+        return stripes[hash & (stripes.length - 1)];
+    }
+}
@@ -0,0 +1,214 @@
+package com.nigga.medivaultsb.scheduling;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel in the style of Varghese and Lauck: a ring of buckets, one per tick, each
+ * holding a doubly linked list of timeouts. Scheduling and cancelling are O(1); every tick only
+ * visits the timeouts hashed to the current bucket. Timeouts further away than one revolution
+ * carry a round count that is decremented on every pass.
+ *
+ * <p>Expired tasks are handed to the given executor so a slow task never delays the wheel.
+ * Precision is one tick.
+ */
+@Slf4j
+public class HashedTimingWheel {
+
+    public interface Timeout {
+        /**
+         * @return false if the task already fired or was cancelled before
+         */
+        boolean cancel();
+    }
+
+    private final long tickNanos;
+    private final Bucket[] buckets;
+    private final int mask;
+    private final Executor taskExecutor;
+    private final String name;
+    private final Object lock = new Object();
+
+    // Guarded by lock
+    private long currentTick;
+    private int size;
+
+    private volatile Thread worker;
+    private long startNanos;
+
+    public HashedTimingWheel(String name, Duration tickDuration, int wheelSize, Executor taskExecutor) {
+        if (tickDuration.isZero() || tickDuration.isNegative()) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        // A power of two, so a bucket can be picked with a mask
+        int normalizedSize = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.name = name;
+        this.tickNanos = tickDuration.toNanos();
+        this.buckets = new Bucket[normalizedSize];
+        for (int i = 0; i < normalizedSize; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.mask = normalizedSize - 1;
+        this.taskExecutor = taskExecutor;
+    }
+
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        startNanos = System.nanoTime();
+        Thread thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        Thread thread = worker;
+        worker = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Runs {@code task} once {@code delay} has passed. Non-positive delays fire on the next tick.
+     */
+    public Timeout schedule(Runnable task, Duration delay) {
+        long delayNanos = Math.max(0, delay.toNanos());
+        long delayTicks = Math.max(1, (delayNanos + tickNanos - 1) / tickNanos);
+
+        Node node = new Node(task);
+        synchronized (lock) {
+            long targetTick = currentTick + delayTicks;
+            node.remainingRounds = (delayTicks - 1) / buckets.length;
+            buckets[(int) (targetTick & mask)].add(node);
+            size++;
+        }
+        return node;
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    private void run() {
+        while (worker == Thread.currentThread()) {
+            long nextTickNanos;
+            synchronized (lock) {
+                nextTickNanos = startNanos + (currentTick + 1) * tickNanos;
+            }
+            long sleepNanos = nextTickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+                // stop() signals through the worker field; clearing the flag keeps a stray
+                // interrupt from turning parking into a busy loop
+                Thread.interrupted();
+                continue;
+            }
+            tick();
+        }
+    }
+
+    /**
+     * Advances the wheel by one tick and hands the timeouts that expire on it to the executor.
+     * Called by the worker thread once per tick; tests call it directly instead of starting it.
+     */
+    void tick() {
+        List<Runnable> expired = new ArrayList<>();
+        synchronized (lock) {
+            currentTick++;
+            buckets[(int) (currentTick & mask)].expire(expired);
+            size -= expired.size();
+        }
+        for (Runnable task : expired) {
+            try {
+                taskExecutor.execute(task);
+            } catch (RuntimeException e) {
+                log.error("Could not run task from timing wheel {}: {}", name, e.getMessage(), e);
+            }
+        }
+    }
+
+    private final class Node implements Timeout {
+
+        private final Runnable task;
+        // All fields below are guarded by lock
+        private long remainingRounds;
+        private Bucket bucket;
+        private Node prev;
+        private Node next;
+
+        private Node(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public boolean cancel() {
+            synchronized (lock) {
+                if (bucket == null) {
+                    return false;
+                }
+                bucket.remove(this);
+                size--;
+                return true;
+            }
+        }
+    }
+
+    // Intrusive doubly linked list, so a node can unlink itself in O(1); guarded by lock
+    private final class Bucket {
+
+        private Node head;
+        private Node tail;
+
+        private void add(Node node) {
+            node.bucket = this;
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        private void remove(Node node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.bucket = null;
+            node.prev = null;
+            node.next = null;
+        }
+
+        private void expire(List<Runnable> expired) {
+            Node node = head;
+            while (node != null) {
+                Node next = node.next;
+                if (node.remainingRounds <= 0) {
+                    remove(node);
+                    expired.add(node.task);
+                } else {
+                    node.remainingRounds--;
+                }
+                node = next;
+            }
+        }
+    }
+}
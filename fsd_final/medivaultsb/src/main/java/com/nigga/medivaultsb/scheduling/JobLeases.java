@@ -0,0 +1,44 @@
+package com.nigga.medivaultsb.scheduling;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Time-bounded leases in {@code job_leases} that let one instance at a time run a background
+ * job. A lease that is not released, for example because its holder crashed, lapses on its own.
+ */
+@Component
+public class JobLeases {
+
+    // Identifies this instance as a lease holder for as long as it runs
+    private final String owner = UUID.randomUUID().toString();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Takes or extends the lease on {@code jobName} for {@code duration}.
+     *
+     * @return whether this instance holds the lease now
+     */
+    public boolean tryAcquire(String jobName, Duration duration) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.update(
+                "INSERT INTO job_leases (job_name, owner, locked_until) VALUES (?, ?, ?) " +
+                "ON CONFLICT (job_name) DO UPDATE SET owner = EXCLUDED.owner, locked_until = EXCLUDED.locked_until " +
+                "WHERE job_leases.locked_until < ? OR job_leases.owner = EXCLUDED.owner",
+                jobName, owner, Timestamp.valueOf(now.plus(duration)), Timestamp.valueOf(now)) > 0;
+    }
+
+    public void release(String jobName) {
+        jdbcTemplate.update(
+                "UPDATE job_leases SET locked_until = ? WHERE job_name = ? AND owner = ?",
+                Timestamp.valueOf(LocalDateTime.now()), jobName, owner);
+    }
+}
@@ -0,0 +1,75 @@
+package com.nigga.medivaultsb.scheduling;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One {@link HashedTimingWheel} timer per open waitlist offer, firing when the hold on the
+ * offered slot runs out.
+ */
+@Component
+public class WaitlistHoldTimer {
+
+    private final HashedTimingWheel wheel;
+    private final Map<Long, HashedTimingWheel.Timeout> timeouts = new ConcurrentHashMap<>();
+
+    @Autowired
+    public WaitlistHoldTimer(@Value("${medivault.waitlist.tick:1s}") Duration tick,
+                             @Value("${medivault.waitlist.wheel-size:512}") int wheelSize,
+                             @Qualifier("waitlistExecutor") TaskExecutor waitlistExecutor) {
+        this(new HashedTimingWheel("waitlist-hold-wheel", tick, wheelSize, waitlistExecutor));
+    }
+
+    WaitlistHoldTimer(HashedTimingWheel wheel) {
+        this.wheel = wheel;
+    }
+
+    public void start() {
+        wheel.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        wheel.stop();
+    }
+
+    /**
+     * Runs {@code onExpiry} once {@code expiresAt} has passed, replacing any timer the entry had.
+     */
+    public void schedule(Long entryId, LocalDateTime expiresAt, Runnable onExpiry) {
+        // Holds that ran out while the application was down fire on the next tick
+        Duration delay = Duration.between(LocalDateTime.now(), expiresAt);
+        HashedTimingWheel.Timeout[] self = new HashedTimingWheel.Timeout[1];
+        self[0] = wheel.schedule(() -> {
+            timeouts.remove(entryId, self[0]);
+            onExpiry.run();
+        }, delay);
+        HashedTimingWheel.Timeout previous = timeouts.put(entryId, self[0]);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    public void cancelAfterCommit(Long entryId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                HashedTimingWheel.Timeout timeout = timeouts.remove(entryId);
+                if (timeout != null) {
+                    timeout.cancel();
+                }
+            }
+        });
+    }
+}
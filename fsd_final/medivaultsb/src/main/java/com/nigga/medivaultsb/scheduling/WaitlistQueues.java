@@ -0,0 +1,133 @@
+package com.nigga.medivaultsb.scheduling;
+
+import com.nigga.medivaultsb.model.WaitlistEntry;
+import com.nigga.medivaultsb.repository.WaitlistEntryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Waiting patients per doctor and day, most urgent first and then in the order they joined. A
+ * queue is loaded from {@code waitlist_entries} the first time its day is needed and kept in
+ * step with committed changes afterwards, so freeing a slot never scans the table.
+ *
+ * <p>Each doctor's day has its own lock, held while its queue loads, so a slow load only holds up
+ * that day. The queues only see entries created through this instance once loaded; the entry
+ * status in the database stays authoritative, and an entry polled here is only offered if still
+ * WAITING.
+ */
+@Component
+public class WaitlistQueues {
+
+    private static final Comparator<QueuedEntry> PRIORITY = Comparator.comparingInt(QueuedEntry::urgency)
+            .reversed()
+            .thenComparing(QueuedEntry::requestedAt)
+            .thenComparing(QueuedEntry::id);
+
+    @Autowired
+    private WaitlistEntryRepository waitlistEntryRepository;
+
+    private final Map<QueueKey, DayQueue> queues = new ConcurrentHashMap<>();
+
+    public record QueuedEntry(Long id, int urgency, LocalDateTime requestedAt) {
+
+        public static QueuedEntry of(WaitlistEntry entry) {
+            return new QueuedEntry(entry.getId(), entry.getUrgency(), entry.getCreatedAt());
+        }
+    }
+
+    private record QueueKey(Long doctorId, LocalDate date) {
+    }
+
+    // Guarded by its own monitor; entries stay null until the day is first loaded
+    private static final class DayQueue {
+        private PriorityQueue<QueuedEntry> entries;
+    }
+
+    /**
+     * Removes and returns the entry next in line for the doctor's slots on {@code date}.
+     */
+    public Optional<QueuedEntry> poll(Long doctorId, LocalDate date) {
+        QueueKey key = new QueueKey(doctorId, date);
+        DayQueue day = dayQueueFor(key);
+        synchronized (day) {
+            if (day.entries == null) {
+                day.entries = load(key);
+            }
+            return Optional.ofNullable(day.entries.poll());
+        }
+    }
+
+    /**
+     * Puts an entry back in line, for instance because offering it a slot did not go through.
+     */
+    public void add(Long doctorId, LocalDate date, QueuedEntry entry) {
+        DayQueue day = queues.get(new QueueKey(doctorId, date));
+        if (day == null) {
+            return;
+        }
+        synchronized (day) {
+            // Unloaded queues pick the entry up from the database when first needed
+            if (day.entries != null && day.entries.stream().noneMatch(queued -> queued.id().equals(entry.id()))) {
+                day.entries.add(entry);
+            }
+        }
+    }
+
+    public void addAfterCommit(Long doctorId, LocalDate date, QueuedEntry entry) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(doctorId, date, entry);
+            }
+        });
+    }
+
+    public void removeAfterCommit(Long doctorId, LocalDate date, QueuedEntry entry) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remove(doctorId, date, entry);
+            }
+        });
+    }
+
+    private void remove(Long doctorId, LocalDate date, QueuedEntry entry) {
+        DayQueue day = queues.get(new QueueKey(doctorId, date));
+        if (day == null) {
+            return;
+        }
+        synchronized (day) {
+            if (day.entries != null) {
+                // Matched by id: timestamps read back from the database are less precise
+                day.entries.removeIf(queued -> queued.id().equals(entry.id()));
+            }
+        }
+    }
+
+    private DayQueue dayQueueFor(QueueKey key) {
+        // Days that have passed can no longer be offered anything
+        LocalDate today = LocalDate.now();
+        queues.keySet().removeIf(existing -> existing.date().isBefore(today));
+        return queues.computeIfAbsent(key, k -> new DayQueue());
+    }
+
+    // Runs under the day's lock only: changes committed while it loads wait for it, then apply
+    private PriorityQueue<QueuedEntry> load(QueueKey key) {
+        PriorityQueue<QueuedEntry> queue = new PriorityQueue<>(PRIORITY);
+        for (WaitlistEntry entry : waitlistEntryRepository.findByDoctorIdAndRequestedDateAndStatus(
+                key.doctorId(), key.date(), "WAITING")) {
+            queue.add(QueuedEntry.of(entry));
+        }
+        return queue;
+    }
+}
@@ -0,0 +1,77 @@
+package com.nigga.medivaultsb.search;
+
+import com.nigga.medivaultsb.repository.MedicalRecordExportRow;
+import com.nigga.medivaultsb.repository.MedicalRecordRepository;
+import com.nigga.medivaultsb.service.MedicalRecordCreatedEvent;
+import com.nigga.medivaultsb.storage.CompressionCodec;
+import com.nigga.medivaultsb.storage.RecordFile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Maintains {@code medical_record_search}, a weighted tsvector per record backed by a GIN index.
+ * Title ranks highest, then doctor and record type, then description, then the document body.
+ * Rows go away with their record through the foreign key cascade.
+ */
+@Component
+@Slf4j
+public class RecordSearchIndexer {
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO medical_record_search (record_id, patient_id, document, indexed_at) " +
+            "SELECT r.id, r.patient_id, " +
+            "setweight(to_tsvector('english', coalesce(r.title, '')), 'A') || " +
+            "setweight(to_tsvector('english', coalesce(r.doctor_name, '') || ' ' || coalesce(r.record_type, '')), 'B') || " +
+            "setweight(to_tsvector('english', coalesce(r.description, '')), 'C') || " +
+            "setweight(to_tsvector('english', ?), 'D'), now() " +
+            "FROM medical_records r WHERE r.id = ? " +
+            "ON CONFLICT (record_id) DO UPDATE SET document = EXCLUDED.document, indexed_at = EXCLUDED.indexed_at";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MedicalRecordRepository medicalRecordRepository;
+
+    @Autowired
+    private RecordTextExtractor recordTextExtractor;
+
+    @Async("indexingExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onMedicalRecordCreated(MedicalRecordCreatedEvent event) {
+        index(event.recordId());
+    }
+
+    public void index(Long recordId) {
+        Optional<MedicalRecordExportRow> row = medicalRecordRepository.findExportRowById(recordId);
+        if (row.isEmpty()) {
+            // Deleted before the indexer got to it
+            return;
+        }
+
+        String text;
+        try {
+            text = recordTextExtractor.extract(new RecordFile(
+                    row.get().getStorageKey(),
+                    row.get().getFileName(),
+                    row.get().getContentType(),
+                    row.get().getFileSize(),
+                    CompressionCodec.valueOf(row.get().getCodec())
+            ));
+        } catch (IOException | RuntimeException e) {
+            // Encrypted or damaged documents are still findable by their metadata
+            log.warn("Could not extract text from medical record {}: {}", recordId, e.getMessage());
+            text = "";
+        }
+
+        jdbcTemplate.update(UPSERT_SQL, text, recordId);
+    }
+}
@@ -0,0 +1,88 @@
+package com.nigga.medivaultsb.search;
+
+import com.nigga.medivaultsb.storage.ContentAddressedRecordStore;
+import com.nigga.medivaultsb.storage.RecordFile;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Pulls searchable text out of record payloads. Only PDFs and plain-text types are read;
+ * everything else is indexed by its metadata alone.
+ */
+@Component
+public class RecordTextExtractor {
+
+    @Autowired
+    private ContentAddressedRecordStore contentAddressedRecordStore;
+
+    @Value("${medivault.search.max-text-length:200000}")
+    private int maxTextLength;
+
+    @Value("${medivault.search.max-pdf-pages:200}")
+    private int maxPdfPages;
+
+    public String extract(RecordFile file) throws IOException {
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(file.contentType());
+        } catch (RuntimeException e) {
+            return "";
+        }
+
+        String text;
+        if (MediaType.APPLICATION_PDF.includes(mediaType)) {
+            text = extractPdf(file);
+        } else if ("text".equals(mediaType.getType())) {
+            text = extractPlainText(file);
+        } else {
+            return "";
+        }
+
+        // Postgres text cannot hold NUL characters
+        text = text.replace('\u0000', ' ');
+        return text.length() > maxTextLength ? text.substring(0, maxTextLength) : text;
+    }
+
+    private String extractPdf(RecordFile file) throws IOException {
+        // PDFBox needs random access, so spool the decompressed payload to disk rather than the heap
+        Path spool = Files.createTempFile("medivault-index-", ".pdf");
+        try {
+            try (InputStream inputStream = contentAddressedRecordStore.open(file)) {
+                Files.copy(inputStream, spool, StandardCopyOption.REPLACE_EXISTING);
+            }
+            try (PDDocument document = Loader.loadPDF(spool.toFile())) {
+                PDFTextStripper stripper = new PDFTextStripper();
+                stripper.setEndPage(maxPdfPages);
+                return stripper.getText(document);
+            }
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    private String extractPlainText(RecordFile file) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[8192];
+        try (Reader reader = new InputStreamReader(contentAddressedRecordStore.open(file), StandardCharsets.UTF_8)) {
+            int charsRead;
+            while (text.length() < maxTextLength && (charsRead = reader.read(buffer)) != -1) {
+                text.append(buffer, 0, charsRead);
+            }
+        }
+        return text.toString();
+    }
+}
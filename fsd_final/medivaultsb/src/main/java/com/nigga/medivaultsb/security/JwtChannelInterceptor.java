@@ -0,0 +1,72 @@
+package com.nigga.medivaultsb.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+/**
+ * Authenticates STOMP sessions with the same JWT as the REST API. Browsers cannot set headers on
+ * the WebSocket handshake, so the token travels in the {@code Authorization} header of the
+ * CONNECT frame instead. Authenticated sessions may only subscribe to their own user queues.
+ */
+@Component
+@RequiredArgsConstructor
+public class JwtChannelInterceptor implements ChannelInterceptor {
+
+    private final JwtUtil jwtUtil;
+    private final CustomUserDetailsService userDetailsService;
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+
+        switch (accessor.getCommand()) {
+            case CONNECT -> accessor.setUser(authenticate(accessor.getFirstNativeHeader("Authorization")));
+            case SUBSCRIBE, SEND -> {
+                if (accessor.getUser() == null) {
+                    throw new AccessDeniedException("Not authenticated");
+                }
+                // Pushes go to /user/queue/..., which the broker routes to this session's user only
+                String destination = accessor.getDestination();
+                if (accessor.getCommand() == StompCommand.SUBSCRIBE
+                        && (destination == null || !destination.startsWith("/user/queue/"))) {
+                    throw new AccessDeniedException("Cannot subscribe to " + destination);
+                }
+            }
+            default -> {
+            }
+        }
+        return message;
+    }
+
+    private UsernamePasswordAuthenticationToken authenticate(String authHeader) {
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            throw new AccessDeniedException("Missing bearer token");
+        }
+
+        String jwt = authHeader.substring(7);
+        UserDetails userDetails;
+        try {
+            userDetails = userDetailsService.loadUserByUsername(jwtUtil.extractUsername(jwt));
+            if (!jwtUtil.validateToken(jwt, userDetails)) {
+                throw new AccessDeniedException("Invalid token");
+            }
+        } catch (AccessDeniedException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new AccessDeniedException("Invalid token");
+        }
+        return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+    }
+}
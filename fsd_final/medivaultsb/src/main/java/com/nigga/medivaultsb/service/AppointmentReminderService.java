@@ -0,0 +1,44 @@
+package com.nigga.medivaultsb.service;
+
+import com.nigga.medivaultsb.model.Appointment;
+import com.nigga.medivaultsb.repository.AppointmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Service
+public class AppointmentReminderService {
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    /**
+     * Queues the reminder email if the appointment is still approved for the given time.
+     */
+    @Transactional
+    public void sendReminder(Long appointmentId, LocalDateTime appointmentTime, Duration offset) {
+        Optional<Appointment> found = appointmentRepository.findById(appointmentId);
+        if (found.isEmpty()) {
+            return;
+        }
+        Appointment appointment = found.get();
+        if (!"APPROVED".equals(appointment.getStatus()) || !appointment.getAppointmentTime().equals(appointmentTime)) {
+            return;
+        }
+
+        String text = "Dear " + appointment.getPatient().getName() + ",\n\nThis is a reminder of your appointment with Dr. "
+                + appointment.getDoctor().getName() + " on " + appointment.getAppointmentTime() + ".";
+        emailService.queueEmailOnce(
+                "appointment-reminder:" + appointmentId + ":" + appointmentTime + ":" + offset.toMinutes(),
+                appointment.getPatient().getEmail(),
+                "Appointment Reminder",
+                text);
+    }
+}
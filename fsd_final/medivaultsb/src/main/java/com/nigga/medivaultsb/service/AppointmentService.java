@@ -1,25 +1,50 @@
 package com.nigga.medivaultsb.service;
 
 import com.nigga.medivaultsb.dto.AppointmentDTO;
+import com.nigga.medivaultsb.dto.AppointmentStatusUpdate;
+import com.nigga.medivaultsb.dto.CursorPage;
+import com.nigga.medivaultsb.dto.PageCursor;
+import com.nigga.medivaultsb.dto.PatientRosterEntry;
+import com.nigga.medivaultsb.dto.PatientRosterPage;
 import com.nigga.medivaultsb.dto.UserDTO;
 import com.nigga.medivaultsb.model.Appointment;
+import com.nigga.medivaultsb.model.EmailOutboxMessage;
 import com.nigga.medivaultsb.model.User;
 import com.nigga.medivaultsb.repository.AppointmentRepository;
+import com.nigga.medivaultsb.repository.PatientRosterRow;
 import com.nigga.medivaultsb.repository.UserRepository;
+import com.nigga.medivaultsb.scheduling.AppointmentReminderScheduler;
+import com.nigga.medivaultsb.scheduling.AvailableHours;
+import com.nigga.medivaultsb.scheduling.DoctorSlotIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import com.nigga.medivaultsb.service.EmailService;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class AppointmentService {
 
+    private static final String STATUS_EMAIL_SUBJECT = "Appointment Status Update";
+    private static final Set<String> VALID_STATUSES = Set.of("PENDING", "APPROVED", "REJECTED", "FINISHED");
+    private static final int MAX_BULK_UPDATES = 200;
+
     @Autowired
     private AppointmentRepository appointmentRepository;
     
@@ -28,6 +53,27 @@ public class AppointmentService {
 
     @Autowired
     private EmailService emailService;
+    
+    @Autowired
+    private DoctorSlotIndex doctorSlotIndex;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private AppointmentReminderScheduler appointmentReminderScheduler;
+    
+    @Autowired
+    private DoctorDirectory doctorDirectory;
+    
+    @Autowired
+    private PatientRosterCache patientRosterCache;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private AppointmentStatsService appointmentStatsService;
 
     public List<AppointmentDTO> getPatientAppointments() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -77,11 +123,60 @@ public class AppointmentService {
                 .collect(Collectors.toList());
     }
     
+    public CursorPage<AppointmentDTO> getPatientAppointments(int limit, String cursor) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth.getName();
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        
+        int pageSize = KeysetPages.clampLimit(limit);
+        PageCursor position = PageCursor.decode(cursor);
+        List<Appointment> rows;
+        if (position == null) {
+            rows = appointmentRepository.findByPatientOrderByAppointmentTimeAscIdAsc(
+                    user, KeysetPages.fetchLimit(pageSize));
+        } else if (position.backward()) {
+            rows = appointmentRepository.findPatientAppointmentsBefore(
+                    user, position.key(), position.id(), KeysetPages.fetchLimit(pageSize));
+        } else {
+            rows = appointmentRepository.findPatientAppointmentsAfter(
+                    user, position.key(), position.id(), KeysetPages.fetchLimit(pageSize));
+        }
+        
+        return KeysetPages.build(rows, pageSize, position != null && position.backward(), position != null,
+                Appointment::getAppointmentTime, Appointment::getId, this::convertToDTO);
+    }
+    
+    public CursorPage<AppointmentDTO> getDoctorAppointments(int limit, String cursor) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth.getName();
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        
+        int pageSize = KeysetPages.clampLimit(limit);
+        PageCursor position = PageCursor.decode(cursor);
+        List<Appointment> rows;
+        if (position == null) {
+            rows = appointmentRepository.findByDoctorOrderByAppointmentTimeAscIdAsc(
+                    user, KeysetPages.fetchLimit(pageSize));
+        } else if (position.backward()) {
+            rows = appointmentRepository.findDoctorAppointmentsBefore(
+                    user, position.key(), position.id(), KeysetPages.fetchLimit(pageSize));
+        } else {
+            rows = appointmentRepository.findDoctorAppointmentsAfter(
+                    user, position.key(), position.id(), KeysetPages.fetchLimit(pageSize));
+        }
+        
+        return KeysetPages.build(rows, pageSize, position != null && position.backward(), position != null,
+                Appointment::getAppointmentTime, Appointment::getId, this::convertToDTO);
+    }
+    
     public List<UserDTO> getAllDoctors() {
-        return userRepository.findByRole("DOCTOR")
-                .stream()
-                .map(this::convertToUserDTO)
-                .collect(Collectors.toList());
+        return doctorDirectory.snapshot().getDoctors();
+    }
+    
+    public DoctorDirectory.Snapshot getDoctorDirectory() {
+        return doctorDirectory.snapshot();
     }
     
     @Transactional
@@ -98,18 +193,35 @@ public class AppointmentService {
             throw new RuntimeException("Selected user is not a doctor");
         }
         
+        // Serialized per doctor; released again if this transaction rolls back
+        doctorSlotIndex.reserve(doctor.getId(), appointmentTime);
+        
         Appointment appointment = new Appointment();
         appointment.setPatient(patient);
         appointment.setDoctor(doctor);
         appointment.setAppointmentTime(appointmentTime);
         appointment.setStatus("PENDING");
         
-        Appointment savedAppointment = appointmentRepository.save(appointment);
+        Appointment savedAppointment;
+        try {
+            savedAppointment = appointmentRepository.save(appointment);
+        } catch (DataIntegrityViolationException e) {
+            // Booked through another instance; caught by the partial unique index
+            throw new RuntimeException("Doctor already has an appointment at this time");
+        }
+        patientRosterCache.invalidateAfterCommit(doctor.getId());
+        appointmentStatsService.recordTransition(doctor.getId(), appointmentTime, savedAppointment.getCreatedAt(),
+                null, "PENDING");
         return convertToDTO(savedAppointment);
     }
     
     @Transactional
     public AppointmentDTO updateAppointmentStatus(Long appointmentId, String status, String rejectionReason) {
+        // HELD is reserved for the waitlist, which creates and settles those appointments itself
+        if (status == null || !VALID_STATUSES.contains(status)) {
+            throw new RuntimeException("Invalid appointment status: " + status);
+        }
+        
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String email = auth.getName();
         User doctor = userRepository.findByEmail(email)
@@ -122,25 +234,167 @@ public class AppointmentService {
             throw new RuntimeException("Unauthorized to update this appointment");
         }
         
+        boolean wasActive = DoctorSlotIndex.isActive(appointment.getStatus());
+        boolean isActive = DoctorSlotIndex.isActive(status);
+        if (wasActive && !isActive) {
+            doctorSlotIndex.releaseAfterCommit(doctor.getId(), appointment.getAppointmentTime());
+            publishSlotFreed(doctor.getId(), appointment.getAppointmentTime());
+        } else if (!wasActive && isActive) {
+            doctorSlotIndex.reserve(doctor.getId(), appointment.getAppointmentTime());
+        }
+        
+        appointmentStatsService.recordTransition(doctor.getId(), appointment.getAppointmentTime(),
+                appointment.getCreatedAt(), appointment.getStatus(), status);
         appointment.setStatus(status);
         if (status.equals("REJECTED") && rejectionReason != null) {
             appointment.setRejectionReason(rejectionReason);
         }
         
         Appointment updatedAppointment = appointmentRepository.save(appointment);
-        // Send email notification to patient
-        String patientEmail = appointment.getPatient().getEmail();
-        String subject = "Appointment Status Update";
-        String text;
+        appointmentReminderScheduler.syncAfterCommit(
+                appointment.getId(), appointment.getAppointmentTime(), status);
+        // Delivered by the outbox dispatcher once this transaction commits
+        emailService.queueEmail(appointment.getPatient().getEmail(), STATUS_EMAIL_SUBJECT,
+                statusEmailText(appointment, doctor, status, rejectionReason));
+        return convertToDTO(updatedAppointment);
+    }
+    
+    /**
+     * Applies several status changes for the current doctor in one go: one query loads and
+     * checks ownership of every appointment, one batched statement writes the changes and one
+     * batched insert queues the notifications. Either all updates apply or none do.
+     */
+    @Transactional
+    public List<AppointmentDTO> updateAppointmentStatuses(List<AppointmentStatusUpdate> updates) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth.getName();
+        User doctor = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        
+        if (updates == null || updates.isEmpty()) {
+            throw new RuntimeException("No appointment updates given");
+        }
+        if (updates.size() > MAX_BULK_UPDATES) {
+            throw new RuntimeException("At most " + MAX_BULK_UPDATES + " appointments can be updated at once");
+        }
+        
+        Map<Long, AppointmentStatusUpdate> updatesById = new LinkedHashMap<>();
+        for (AppointmentStatusUpdate update : updates) {
+            if (update.getId() == null || update.getStatus() == null || !VALID_STATUSES.contains(update.getStatus())) {
+                throw new RuntimeException("Each update needs an appointment id and a valid status");
+            }
+            if (updatesById.put(update.getId(), update) != null) {
+                throw new RuntimeException("Appointment " + update.getId() + " is listed more than once");
+            }
+        }
+        
+        Map<Long, Appointment> appointments = appointmentRepository.findByIdInAndDoctor(updatesById.keySet(), doctor)
+                .stream()
+                .collect(Collectors.toMap(Appointment::getId, appointment -> appointment));
+        if (appointments.size() != updatesById.size()) {
+            throw new RuntimeException("Unauthorized to update one or more of these appointments");
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> batchArgs = new ArrayList<>();
+        List<EmailOutboxMessage> notifications = new ArrayList<>();
+        List<AppointmentStatsService.Transition> transitions = new ArrayList<>();
+        List<AppointmentDTO> results = new ArrayList<>();
+        for (AppointmentStatusUpdate update : updatesById.values()) {
+            Appointment appointment = appointments.get(update.getId());
+            String status = update.getStatus();
+            String rejectionReason = status.equals("REJECTED") ? update.getRejectionReason() : null;
+            
+            boolean wasActive = DoctorSlotIndex.isActive(appointment.getStatus());
+            boolean isActive = DoctorSlotIndex.isActive(status);
+            if (wasActive && !isActive) {
+                doctorSlotIndex.releaseAfterCommit(doctor.getId(), appointment.getAppointmentTime());
+                publishSlotFreed(doctor.getId(), appointment.getAppointmentTime());
+            } else if (!wasActive && isActive) {
+                doctorSlotIndex.reserve(doctor.getId(), appointment.getAppointmentTime());
+            }
+            
+            batchArgs.add(new Object[]{status, rejectionReason, now, appointment.getId(), doctor.getId()});
+            transitions.add(new AppointmentStatsService.Transition(doctor.getId(), appointment.getAppointmentTime(),
+                    appointment.getCreatedAt(), appointment.getStatus(), status));
+            appointmentReminderScheduler.syncAfterCommit(
+                    appointment.getId(), appointment.getAppointmentTime(), status);
+            
+            EmailOutboxMessage notification = new EmailOutboxMessage();
+            notification.setRecipient(appointment.getPatient().getEmail());
+            notification.setSubject(STATUS_EMAIL_SUBJECT);
+            notification.setBody(statusEmailText(appointment, doctor, status, update.getRejectionReason()));
+            notifications.add(notification);
+            
+            // The entities stay untouched so Hibernate does not issue its own update per row
+            AppointmentDTO dto = convertToDTO(appointment);
+            dto.setStatus(status);
+            if (rejectionReason != null) {
+                dto.setRejectionReason(rejectionReason);
+            }
+            dto.setUpdatedAt(now);
+            results.add(dto);
+        }
+        
+        jdbcTemplate.batchUpdate(
+                "UPDATE appointments SET status = ?, rejection_reason = COALESCE(?, rejection_reason), updated_at = ? " +
+                "WHERE id = ? AND doctor_id = ?",
+                batchArgs);
+        appointmentStatsService.recordTransitions(transitions);
+        emailService.queueEmails(notifications);
+        return results;
+    }
+    
+    // Future slots go to the doctor's waitlist once this transaction commits
+    private void publishSlotFreed(Long doctorId, LocalDateTime appointmentTime) {
+        if (appointmentTime.isAfter(LocalDateTime.now())) {
+            eventPublisher.publishEvent(new AppointmentSlotFreedEvent(doctorId, appointmentTime));
+        }
+    }
+    
+    private String statusEmailText(Appointment appointment, User doctor, String status, String rejectionReason) {
         if (status.equals("APPROVED")) {
-            text = "Dear " + appointment.getPatient().getName() + ",\n\nYour appointment with Dr. " + doctor.getName() + " on " + appointment.getAppointmentTime() + " has been APPROVED.";
+            return "Dear " + appointment.getPatient().getName() + ",\n\nYour appointment with Dr. " + doctor.getName() + " on " + appointment.getAppointmentTime() + " has been APPROVED.";
         } else if (status.equals("REJECTED")) {
-            text = "Dear " + appointment.getPatient().getName() + ",\n\nYour appointment with Dr. " + doctor.getName() + " on " + appointment.getAppointmentTime() + " has been REJECTED. Reason: " + rejectionReason;
+            return "Dear " + appointment.getPatient().getName() + ",\n\nYour appointment with Dr. " + doctor.getName() + " on " + appointment.getAppointmentTime() + " has been REJECTED. Reason: " + rejectionReason;
         } else {
-            text = "Dear " + appointment.getPatient().getName() + ",\n\nYour appointment status has been updated to: " + status + ".";
+            return "Dear " + appointment.getPatient().getName() + ",\n\nYour appointment status has been updated to: " + status + ".";
         }
-        emailService.sendEmail(patientEmail, subject, text);
-        return convertToDTO(updatedAppointment);
+    }
+    
+    /**
+     * Lists the bookable slot start times of a doctor over {@code days} days from {@code from},
+     * derived from the doctor's available hours minus slots that are already taken.
+     */
+    public List<LocalDateTime> getFreeSlots(Long doctorId, LocalDate from, int days) {
+        User doctor = userRepository.findById(doctorId)
+                .orElseThrow(() -> new RuntimeException("Doctor not found"));
+        
+        if (!"DOCTOR".equals(doctor.getRole())) {
+            throw new RuntimeException("Selected user is not a doctor");
+        }
+        if (days < 1 || days > 31) {
+            throw new RuntimeException("Days must be between 1 and 31");
+        }
+        
+        AvailableHours availableHours = AvailableHours.parse(doctor.getAvailableHours());
+        LocalDateTime now = LocalDateTime.now();
+        List<LocalDateTime> candidates = new ArrayList<>();
+        for (int offset = 0; offset < days; offset++) {
+            LocalDate date = from.plusDays(offset);
+            for (AvailableHours.TimeRange range : availableHours.rangesOn(date.getDayOfWeek())) {
+                LocalDateTime slot = date.atTime(range.start());
+                LocalDateTime end = date.atTime(range.end());
+                while (!slot.plus(doctorSlotIndex.getSlotDuration()).isAfter(end)) {
+                    if (slot.isAfter(now)) {
+                        candidates.add(slot);
+                    }
+                    slot = slot.plus(doctorSlotIndex.getSlotDuration());
+                }
+            }
+        }
+        
+        return doctorSlotIndex.freeAmong(doctorId, candidates);
     }
     
     @Transactional
@@ -151,6 +405,10 @@ public class AppointmentService {
             throw new RuntimeException("Only rejected or finished appointments can be deleted");
         }
         appointmentRepository.deleteById(appointmentId);
+        appointmentReminderScheduler.cancelAfterCommit(appointmentId);
+        patientRosterCache.invalidateAfterCommit(appointment.getDoctor().getId());
+        appointmentStatsService.recordTransition(appointment.getDoctor().getId(), appointment.getAppointmentTime(),
+                appointment.getCreatedAt(), appointment.getStatus(), null);
     }
     
     private UserDTO convertToUserDTO(User user) {
@@ -188,30 +446,49 @@ public class AppointmentService {
     public List<UserDTO> getAllPatientsForDoctor(Long doctorId) {
         User doctor = userRepository.findById(doctorId)
                 .orElseThrow(() -> new RuntimeException("Doctor not found"));
-        List<Appointment> appointments = appointmentRepository.findByDoctorOrderByAppointmentTimeAsc(doctor);
-        return appointments.stream()
-                .map(Appointment::getPatient)
-                .distinct()
-                .map(this::toUserDTO)
+        return loadPatientRoster(doctor.getId(), null, Pageable.unpaged())
+                .getPatients()
+                .stream()
+                .map(PatientRosterEntry::getPatient)
                 .collect(Collectors.toList());
     }
-
-    private UserDTO toUserDTO(User user) {
-        return new UserDTO(
-            user.getId(),
-            user.getName(),
-            user.getEmail(),
-            user.getPhone(),
-            user.getRole(),
-            user.getGender(),
-            user.getAge(),
-            user.getSpecialty(),
-            user.getLicenseNumber(),
-            user.getYearsOfExperience(),
-            user.getBio(),
-            user.getClinicName(),
-            user.getClinicLocation(),
-            user.getAvailableHours()
-        );
+    
+    /**
+     * The current doctor's patients, most recently seen first, optionally narrowed to names
+     * starting with {@code namePrefix}.
+     */
+    public PatientRosterPage getPatientRoster(String namePrefix, int page, int size) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth.getName();
+        User doctor = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("Doctor not found"));
+        
+        if (page < 0) {
+            throw new RuntimeException("Page must not be negative");
+        }
+        int pageSize = KeysetPages.clampLimit(size);
+        String prefix = namePrefix == null || namePrefix.isBlank() ? null : namePrefix.trim().toLowerCase();
+        return patientRosterCache.get(doctor.getId(), prefix, page, pageSize,
+                () -> loadPatientRoster(doctor.getId(), prefix, PageRequest.of(page, pageSize)));
+    }
+    
+    private PatientRosterPage loadPatientRoster(Long doctorId, String prefix, Pageable pageable) {
+        String namePattern = prefix == null ? "%" : prefix.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+        Page<PatientRosterRow> rows = appointmentRepository.findPatientRoster(doctorId, namePattern, pageable);
+        
+        Map<Long, User> patients = userRepository.findAllById(
+                        rows.getContent().stream().map(PatientRosterRow::getPatientId).toList())
+                .stream()
+                .collect(Collectors.toMap(User::getId, patient -> patient));
+        List<PatientRosterEntry> entries = rows.getContent()
+                .stream()
+                .map(row -> new PatientRosterEntry(convertToUserDTO(patients.get(row.getPatientId())), row.getLastVisit()))
+                .collect(Collectors.toList());
+        return new PatientRosterPage(entries,
+                pageable.isPaged() ? pageable.getPageNumber() : 0,
+                pageable.isPaged() ? pageable.getPageSize() : entries.size(),
+                rows.getTotalElements());
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
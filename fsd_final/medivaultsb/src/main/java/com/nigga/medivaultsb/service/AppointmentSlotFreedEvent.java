@@ -0,0 +1,10 @@
+package com.nigga.medivaultsb.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published inside the transaction that frees a doctor's future slot, for instance by rejecting
+ * the appointment in it; the slot is offered to the waitlist after commit.
+ */
+public record AppointmentSlotFreedEvent(Long doctorId, LocalDateTime appointmentTime) {
+}
@@ -0,0 +1,191 @@
+package com.nigga.medivaultsb.service;
+
+import com.nigga.medivaultsb.dto.AppointmentDayStats;
+import com.nigga.medivaultsb.model.User;
+import com.nigga.medivaultsb.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-doctor, per-day appointment counts in {@code appointment_daily_stats}. Every status change
+ * applies its delta to the affected day in the same transaction, so dashboards read one row per
+ * day instead of scanning appointments. {@link #rebuild()} recomputes the table from scratch.
+ *
+ * <p>Only PENDING, APPROVED, REJECTED and FINISHED appointments are counted; HELD slots offered
+ * to the waitlist join the counts once the patient accepts them.
+ */
+@Service
+@Slf4j
+public class AppointmentStatsService {
+
+    private static final List<String> COUNTED_STATUSES = List.of("PENDING", "APPROVED", "REJECTED", "FINISHED");
+    private static final int MAX_DAYS = 366;
+
+    private static final String APPLY_DELTA_SQL =
+            "INSERT INTO appointment_daily_stats (doctor_id, day, pending, approved, rejected, finished, " +
+            "lead_minutes_sum, lead_under_1d, lead_1d_to_7d, lead_over_7d) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (doctor_id, day) DO UPDATE SET " +
+            "pending = appointment_daily_stats.pending + EXCLUDED.pending, " +
+            "approved = appointment_daily_stats.approved + EXCLUDED.approved, " +
+            "rejected = appointment_daily_stats.rejected + EXCLUDED.rejected, " +
+            "finished = appointment_daily_stats.finished + EXCLUDED.finished, " +
+            "lead_minutes_sum = appointment_daily_stats.lead_minutes_sum + EXCLUDED.lead_minutes_sum, " +
+            "lead_under_1d = appointment_daily_stats.lead_under_1d + EXCLUDED.lead_under_1d, " +
+            "lead_1d_to_7d = appointment_daily_stats.lead_1d_to_7d + EXCLUDED.lead_1d_to_7d, " +
+            "lead_over_7d = appointment_daily_stats.lead_over_7d + EXCLUDED.lead_over_7d";
+
+    private static final String LEAD_MINUTES_SQL =
+            "GREATEST(0, FLOOR(EXTRACT(EPOCH FROM (appointment_time - created_at)) / 60))";
+
+    private static final String REBUILD_SQL =
+            "INSERT INTO appointment_daily_stats (doctor_id, day, pending, approved, rejected, finished, " +
+            "lead_minutes_sum, lead_under_1d, lead_1d_to_7d, lead_over_7d) " +
+            "SELECT doctor_id, CAST(appointment_time AS DATE), " +
+            "COUNT(*) FILTER (WHERE status = 'PENDING'), " +
+            "COUNT(*) FILTER (WHERE status = 'APPROVED'), " +
+            "COUNT(*) FILTER (WHERE status = 'REJECTED'), " +
+            "COUNT(*) FILTER (WHERE status = 'FINISHED'), " +
+            "COALESCE(SUM(" + LEAD_MINUTES_SQL + "), 0), " +
+            "COUNT(*) FILTER (WHERE " + LEAD_MINUTES_SQL + " < 1440), " +
+            "COUNT(*) FILTER (WHERE " + LEAD_MINUTES_SQL + " >= 1440 AND " + LEAD_MINUTES_SQL + " < 10080), " +
+            "COUNT(*) FILTER (WHERE " + LEAD_MINUTES_SQL + " >= 10080) " +
+            "FROM appointments WHERE status IN ('PENDING', 'APPROVED', 'REJECTED', 'FINISHED') " +
+            "GROUP BY doctor_id, CAST(appointment_time AS DATE)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    /**
+     * One appointment moving from {@code fromStatus} to {@code toStatus}; {@code null} stands
+     * for an appointment that is being created or deleted.
+     */
+    public record Transition(Long doctorId, LocalDateTime appointmentTime, LocalDateTime createdAt,
+                             String fromStatus, String toStatus) {
+    }
+
+    private record DayKey(Long doctorId, LocalDate day) {
+    }
+
+    public void recordTransition(Long doctorId, LocalDateTime appointmentTime, LocalDateTime createdAt,
+                                 String fromStatus, String toStatus) {
+        recordTransitions(List.of(new Transition(doctorId, appointmentTime, createdAt, fromStatus, toStatus)));
+    }
+
+    /**
+     * Applies the deltas of several transitions, merged per doctor and day, in one batch. Must run
+     * inside the transaction that makes the changes.
+     */
+    public void recordTransitions(List<Transition> transitions) {
+        Map<DayKey, long[]> deltas = new LinkedHashMap<>();
+        for (Transition transition : transitions) {
+            int from = COUNTED_STATUSES.indexOf(transition.fromStatus());
+            int to = COUNTED_STATUSES.indexOf(transition.toStatus());
+            if (from == to) {
+                continue;
+            }
+            // Four status counters, then lead minutes and the three lead buckets
+            long[] delta = deltas.computeIfAbsent(
+                    new DayKey(transition.doctorId(), transition.appointmentTime().toLocalDate()), key -> new long[8]);
+            if (from >= 0) {
+                delta[from]--;
+            }
+            if (to >= 0) {
+                delta[to]++;
+            }
+            if ((from >= 0) != (to >= 0)) {
+                int sign = to >= 0 ? 1 : -1;
+                long leadMinutes = Math.max(0, Duration.between(transition.createdAt(), transition.appointmentTime()).toMinutes());
+                delta[4] += sign * leadMinutes;
+                delta[leadMinutes < 1440 ? 5 : leadMinutes < 10080 ? 6 : 7] += sign;
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batchArgs = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) -> batchArgs.add(new Object[]{
+                key.doctorId(), Date.valueOf(key.day()),
+                delta[0], delta[1], delta[2], delta[3], delta[4], delta[5], delta[6], delta[7]}));
+        jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, batchArgs);
+    }
+
+    /**
+     * Daily counts of the current doctor's appointments between {@code from} and {@code to},
+     * inclusive. Days without appointments are left out.
+     */
+    public List<AppointmentDayStats> getDailyStats(LocalDate from, LocalDate to) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth.getName();
+        User doctor = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        
+        if (!"DOCTOR".equals(doctor.getRole())) {
+            throw new RuntimeException("Only doctors have appointment statistics");
+        }
+        if (to.isBefore(from)) {
+            throw new RuntimeException("The end of the range must not be before its start");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_DAYS) {
+            throw new RuntimeException("At most " + MAX_DAYS + " days can be requested at once");
+        }
+
+        return jdbcTemplate.query(
+                "SELECT day, pending, approved, rejected, finished, lead_minutes_sum, " +
+                "lead_under_1d, lead_1d_to_7d, lead_over_7d FROM appointment_daily_stats " +
+                "WHERE doctor_id = ? AND day BETWEEN ? AND ? ORDER BY day",
+                (rs, rowNum) -> {
+                    long pending = rs.getLong("pending");
+                    long approved = rs.getLong("approved");
+                    long rejected = rs.getLong("rejected");
+                    long finished = rs.getLong("finished");
+                    long total = pending + approved + rejected + finished;
+                    return new AppointmentDayStats(
+                            rs.getDate("day").toLocalDate(),
+                            pending,
+                            approved,
+                            rejected,
+                            finished,
+                            total > 0 ? rs.getLong("lead_minutes_sum") / 60.0 / total : null,
+                            rs.getLong("lead_under_1d"),
+                            rs.getLong("lead_1d_to_7d"),
+                            rs.getLong("lead_over_7d"));
+                },
+                doctor.getId(), Date.valueOf(from), Date.valueOf(to));
+    }
+
+    /**
+     * Recomputes every row from the appointments table. The table lock holds back concurrent
+     * deltas until the rebuilt rows are committed, so none are lost or applied twice.
+     */
+    @Transactional
+    public void rebuild() {
+        jdbcTemplate.execute("LOCK TABLE appointment_daily_stats IN EXCLUSIVE MODE");
+        jdbcTemplate.update("DELETE FROM appointment_daily_stats");
+        int rows = jdbcTemplate.update(REBUILD_SQL);
+        log.info("Rebuilt appointment statistics: {} doctor-days", rows);
+    }
+
+    public boolean isEmpty() {
+        return !Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM appointment_daily_stats)", Boolean.class));
+    }
+}
@@ -11,6 +11,7 @@ import com.nigga.medivaultsb.repository.UserRepository;
 import com.nigga.medivaultsb.security.JwtUtil;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -30,6 +31,7 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
     private final AuthenticationManager authenticationManager;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Transactional
     public AuthResponse register(SignupRequest request) {
@@ -58,6 +60,9 @@ public class AuthService {
         }
         
         User savedUser = userRepository.save(user);
+        if ("DOCTOR".equalsIgnoreCase(savedUser.getRole())) {
+            eventPublisher.publishEvent(new DoctorProfileChangedEvent(savedUser.getId()));
+        }
         
         // Save patient details if applicable
         if ("PATIENT".equalsIgnoreCase(request.getRole()) && request.getPatientDetails() != null) {
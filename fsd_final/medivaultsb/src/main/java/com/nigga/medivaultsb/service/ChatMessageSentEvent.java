@@ -0,0 +1,10 @@
+package com.nigga.medivaultsb.service;
+
+import com.nigga.medivaultsb.dto.ChatMessageDTO;
+
+/**
+ * Published inside the transaction that stores a chat message; pushed to both participants
+ * after commit.
+ */
+public record ChatMessageSentEvent(ChatMessageDTO message, String senderEmail, String receiverEmail) {
+}
@@ -0,0 +1,10 @@
+package com.nigga.medivaultsb.service;
+
+import com.nigga.medivaultsb.dto.ChatReadReceipt;
+
+/**
+ * Published inside the transaction that marks a conversation as read; the receipt goes to the
+ * sender and the new unread count to the reader after commit.
+ */
+public record ChatMessagesReadEvent(ChatReadReceipt receipt, String readerEmail, String senderEmail) {
+}
@@ -0,0 +1,53 @@
+package com.nigga.medivaultsb.service;
+
+import com.nigga.medivaultsb.dto.ChatMessageDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Pushes chat changes to the STOMP user queues of the people involved once they are committed,
+ * so connected clients no longer poll history and unread counts. Users are addressed by email,
+ * the principal name of their session.
+ */
+@Component
+@Slf4j
+public class ChatPushListener {
+
+    static final String MESSAGES_QUEUE = "/queue/chat";
+    static final String RECEIPTS_QUEUE = "/queue/chat-receipts";
+    static final String UNREAD_QUEUE = "/queue/chat-unread";
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private UnreadMessageCounters unreadMessageCounters;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onMessageSent(ChatMessageSentEvent event) {
+        ChatMessageDTO message = event.message();
+        push(event.senderEmail(), MESSAGES_QUEUE, message);
+        push(event.receiverEmail(), MESSAGES_QUEUE, message);
+        push(event.receiverEmail(), UNREAD_QUEUE, unreadMessageCounters.get(message.getReceiverId()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onMessagesRead(ChatMessagesReadEvent event) {
+        push(event.senderEmail(), RECEIPTS_QUEUE, event.receipt());
+        push(event.readerEmail(), UNREAD_QUEUE, unreadMessageCounters.get(event.receipt().getReaderId()));
+    }
+
+    // A failed push only costs the client a refresh, so it never fails the request
+    private void push(String email, String destination, Object payload) {
+        try {
+            messagingTemplate.convertAndSendToUser(email, destination, payload);
+        } catch (MessagingException e) {
+            log.warn("Could not push to {} for {}: {}", destination, email, e.getMessage());
+        }
+    }
+}
@@ -1,24 +1,101 @@
 package com.nigga.medivaultsb.service;
 
+import com.nigga.medivaultsb.dto.ChatConversationDTO;
+import com.nigga.medivaultsb.dto.ChatHistorySlice;
+import com.nigga.medivaultsb.dto.ChatMessageDTO;
+import com.nigga.medivaultsb.dto.ChatReadReceipt;
+import com.nigga.medivaultsb.dto.CursorPage;
+import com.nigga.medivaultsb.dto.PageCursor;
+import com.nigga.medivaultsb.dto.UserDTO;
+import com.nigga.medivaultsb.model.ChatConversation;
 import com.nigga.medivaultsb.model.ChatMessage;
 import com.nigga.medivaultsb.model.User;
+import com.nigga.medivaultsb.repository.ChatConversationRepository;
 import com.nigga.medivaultsb.repository.ChatMessageRepository;
 import com.nigga.medivaultsb.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * Chat between two users. Read state is a per-participant watermark in
+ * {@code chat_read_watermarks}: the id of the last message the user has read from the other
+ * participant. Everything the partner sent after it is unread, so marking a conversation read is
+ * a single upsert and {@link ChatMessage#isRead()} is derived when messages are returned.
+ *
+ * <p>Each participant also has a row in {@code chat_conversations} holding the latest message
+ * and their unread count, kept current by every send and read, so the inbox is a range scan of
+ * that table rather than an aggregation over all messages.
+ */
 @Service
 public class ChatService {
 
+    // Moves the watermark to the newest message the partner has sent; never moves it backwards
+    private static final String ADVANCE_WATERMARK_SQL =
+            "INSERT INTO chat_read_watermarks (user_id, partner_id, last_read_id, updated_at) " +
+            "SELECT ?, ?, MAX(id), now() FROM chat_messages " +
+            "WHERE user_low_id = ? AND user_high_id = ? AND sender_id = ? HAVING MAX(id) IS NOT NULL " +
+            "ON CONFLICT (user_id, partner_id) DO UPDATE " +
+            "SET last_read_id = EXCLUDED.last_read_id, updated_at = EXCLUDED.updated_at " +
+            "WHERE EXCLUDED.last_read_id > chat_read_watermarks.last_read_id " +
+            "RETURNING last_read_id";
+
+    private static final int PREVIEW_LENGTH = 200;
+
+    // The latest message only replaces an older one, in case two sends commit out of id order
+    private static final String UPSERT_CONVERSATION_SQL =
+            "INSERT INTO chat_conversations (user_id, partner_id, last_message_id, last_sender_id, " +
+            "last_message_preview, last_message_at, unread_count) VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (user_id, partner_id) DO UPDATE SET " +
+            "unread_count = chat_conversations.unread_count + EXCLUDED.unread_count, " +
+            "last_message_id = GREATEST(chat_conversations.last_message_id, EXCLUDED.last_message_id), " +
+            "last_sender_id = CASE WHEN EXCLUDED.last_message_id > chat_conversations.last_message_id " +
+            "THEN EXCLUDED.last_sender_id ELSE chat_conversations.last_sender_id END, " +
+            "last_message_preview = CASE WHEN EXCLUDED.last_message_id > chat_conversations.last_message_id " +
+            "THEN EXCLUDED.last_message_preview ELSE chat_conversations.last_message_preview END, " +
+            "last_message_at = CASE WHEN EXCLUDED.last_message_id > chat_conversations.last_message_id " +
+            "THEN EXCLUDED.last_message_at ELSE chat_conversations.last_message_at END";
+
+    // Recounts rather than zeroing, so messages the partner sent after the watermark stay unread.
+    // The row is locked before counting: a send that committed while we waited for the lock is
+    // then in the count, instead of its increment being overwritten by a count taken before it
+    private static final String LOCK_CONVERSATION_SQL =
+            "SELECT id FROM chat_conversations WHERE user_id = ? AND partner_id = ? FOR UPDATE";
+
+    private static final String COUNT_UNREAD_SQL =
+            "SELECT COUNT(*) FROM chat_messages WHERE user_low_id = ? AND user_high_id = ? AND sender_id = ? AND id > ?";
+
+    private static final String SET_UNREAD_SQL =
+            "UPDATE chat_conversations SET unread_count = ? WHERE id = ?";
+
     @Autowired
     private ChatMessageRepository chatMessageRepository;
 
+    @Autowired
+    private ChatConversationRepository chatConversationRepository;
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UnreadMessageCounters unreadMessageCounters;
+
     @Transactional
     public ChatMessage sendMessage(Long senderId, Long receiverId, String message) {
         User sender = userRepository.findById(senderId)
@@ -31,29 +108,236 @@ public class ChatService {
         chatMessage.setReceiver(receiver);
         chatMessage.setMessage(message);
         
-        return chatMessageRepository.save(chatMessage);
+        ChatMessage saved = chatMessageRepository.save(chatMessage);
+        updateConversations(saved);
+        unreadMessageCounters.incrementAfterCommit(receiverId, senderId);
+        eventPublisher.publishEvent(new ChatMessageSentEvent(
+                toDTO(saved), sender.getEmail(), receiver.getEmail()));
+        return saved;
     }
 
     public List<ChatMessage> getChatHistory(Long userId1, Long userId2) {
-        return chatMessageRepository.findChatMessagesBetweenUsers(userId1, userId2);
+        return withReadState(userId1, userId2,
+                chatMessageRepository.findConversation(Math.min(userId1, userId2), Math.max(userId1, userId2)));
+    }
+
+    /**
+     * Pages through a conversation in time order. Without a cursor the latest messages are
+     * returned; the next cursor of that page picks up messages sent after it. Only the two
+     * participants may read it.
+     */
+    public CursorPage<ChatMessageDTO> getChatHistory(Long userId1, Long userId2, int limit, String cursor) {
+        requireParticipant(userId1, userId2);
+        int pageSize = KeysetPages.clampLimit(limit);
+        PageCursor position = PageCursor.decode(cursor);
+        Long low = Math.min(userId1, userId2);
+        Long high = Math.max(userId1, userId2);
+        List<ChatMessage> rows;
+        boolean backward;
+        // Message ids increase with their timestamps, so the id alone positions the cursor
+        if (position == null) {
+            rows = chatMessageRepository.findLatestInConversation(low, high, KeysetPages.fetchLimit(pageSize));
+            backward = true;
+        } else if (position.backward()) {
+            rows = chatMessageRepository.findInConversationBefore(low, high, position.id(), KeysetPages.fetchLimit(pageSize));
+            backward = true;
+        } else {
+            rows = chatMessageRepository.findInConversationAfter(low, high, position.id(), KeysetPages.fetchLimit(pageSize));
+            backward = false;
+        }
+        
+        return KeysetPages.build(withReadState(userId1, userId2, rows), pageSize, backward, position != null,
+                ChatMessage::getTimestamp, ChatMessage::getId, this::toDTO);
+    }
+
+    /**
+     * Incremental fetch by message id: with {@code afterId}, the messages sent after it (a client
+     * catching up), with {@code beforeId}, the messages just before it (scrolling back), and with
+     * neither, the latest messages. Either way at most {@link KeysetPages#MAX_LIMIT} messages are
+     * returned in time order, so the cost does not grow with the length of the conversation.
+     * Only the two participants may read it.
+     */
+    public ChatHistorySlice getChatMessages(Long userId1, Long userId2, Long afterId, Long beforeId, int limit) {
+        if (afterId != null && beforeId != null) {
+            throw new RuntimeException("Specify either afterId or beforeId, not both");
+        }
+        requireParticipant(userId1, userId2);
+
+        int pageSize = KeysetPages.clampLimit(limit);
+        Long low = Math.min(userId1, userId2);
+        Long high = Math.max(userId1, userId2);
+        List<ChatMessage> rows;
+        if (afterId != null) {
+            rows = chatMessageRepository.findInConversationAfter(low, high, afterId, KeysetPages.fetchLimit(pageSize));
+        } else if (beforeId != null) {
+            rows = chatMessageRepository.findInConversationBefore(low, high, beforeId, KeysetPages.fetchLimit(pageSize));
+        } else {
+            rows = chatMessageRepository.findLatestInConversation(low, high, KeysetPages.fetchLimit(pageSize));
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<ChatMessage> messages = new ArrayList<>(rows.subList(0, Math.min(rows.size(), pageSize)));
+        if (afterId == null) {
+            // Read newest first; shown oldest first
+            Collections.reverse(messages);
+        }
+        return new ChatHistorySlice(withReadState(userId1, userId2, messages).stream()
+                .map(this::toDTO)
+                .toList(), hasMore);
     }
 
-    public List<User> getChatPartners(Long userId) {
-        return chatMessageRepository.findChatPartnersForUser(userId);
+    /**
+     * Pages through the current user's conversations, most recently active first.
+     */
+    public CursorPage<ChatConversationDTO> getConversations(int limit, String cursor) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth.getName();
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        Long userId = user.getId();
+        
+        int pageSize = KeysetPages.clampLimit(limit);
+        PageCursor position = PageCursor.decode(cursor);
+        List<ChatConversation> rows;
+        if (position == null) {
+            rows = chatConversationRepository.findByUserIdOrderByLastMessageAtDescIdDesc(
+                    userId, KeysetPages.fetchLimit(pageSize));
+        } else if (position.backward()) {
+            rows = chatConversationRepository.findInboxBefore(
+                    userId, position.key(), position.id(), KeysetPages.fetchLimit(pageSize));
+        } else {
+            rows = chatConversationRepository.findInboxAfter(
+                    userId, position.key(), position.id(), KeysetPages.fetchLimit(pageSize));
+        }
+        
+        return KeysetPages.build(rows, pageSize, position != null && position.backward(), position != null,
+                ChatConversation::getLastMessageAt, ChatConversation::getId, this::convertToDTO);
     }
 
+    public List<UserDTO> getChatPartners(Long userId) {
+        return chatConversationRepository.findPartnersByUserId(userId).stream()
+                .map(this::convertToUserDTO)
+                .toList();
+    }
+
+    /**
+     * Marks everything {@code senderId} has sent to {@code receiverId} so far as read by the
+     * receiver.
+     */
     @Transactional
     public void markMessagesAsRead(Long senderId, Long receiverId) {
-        List<ChatMessage> unreadMessages = chatMessageRepository.findChatMessagesBetweenUsers(senderId, receiverId);
-        unreadMessages.stream()
-                .filter(message -> !message.isRead() && message.getReceiver().getId().equals(receiverId))
-                .forEach(message -> {
-                    message.setRead(true);
-                    chatMessageRepository.save(message);
-                });
+        List<Long> advanced = jdbcTemplate.queryForList(ADVANCE_WATERMARK_SQL, Long.class,
+                receiverId, senderId, Math.min(senderId, receiverId), Math.max(senderId, receiverId), senderId);
+        if (advanced.isEmpty()) {
+            // Nothing new to read
+            return;
+        }
+
+        User sender = userRepository.findById(senderId)
+                .orElseThrow(() -> new RuntimeException("Sender not found"));
+        User receiver = userRepository.findById(receiverId)
+                .orElseThrow(() -> new RuntimeException("Receiver not found"));
+        recountUnread(receiverId, senderId, advanced.get(0));
+        unreadMessageCounters.clearAfterCommit(receiverId, senderId);
+        eventPublisher.publishEvent(new ChatMessagesReadEvent(
+                new ChatReadReceipt(receiverId, senderId, advanced.get(0), LocalDateTime.now()),
+                receiver.getEmail(), sender.getEmail()));
     }
 
     public Long getUnreadMessageCount(Long userId) {
-        return chatMessageRepository.countUnreadMessages(userId);
+        return unreadMessageCounters.get(userId);
+    }
+
+    private void recountUnread(Long userId, Long partnerId, Long lastReadId) {
+        List<Long> conversation = jdbcTemplate.queryForList(LOCK_CONVERSATION_SQL, Long.class, userId, partnerId);
+        if (conversation.isEmpty()) {
+            return;
+        }
+        Long unread = jdbcTemplate.queryForObject(COUNT_UNREAD_SQL, Long.class,
+                Math.min(userId, partnerId), Math.max(userId, partnerId), partnerId, lastReadId);
+        jdbcTemplate.update(SET_UNREAD_SQL, unread, conversation.get(0));
+    }
+
+    // Both participants' rows, locked in user id order so crossing sends cannot deadlock
+    private void updateConversations(ChatMessage message) {
+        Long senderId = message.getSender().getId();
+        Long receiverId = message.getReceiver().getId();
+        String text = message.getMessage();
+        String preview = text.length() > PREVIEW_LENGTH ? text.substring(0, PREVIEW_LENGTH) : text;
+        Timestamp sentAt = Timestamp.valueOf(message.getTimestamp());
+
+        Object[] senderRow = {senderId, receiverId, message.getId(), senderId, preview, sentAt, 0};
+        Object[] receiverRow = {receiverId, senderId, message.getId(), senderId, preview, sentAt, 1};
+        jdbcTemplate.batchUpdate(UPSERT_CONVERSATION_SQL, senderId < receiverId
+                ? List.of(senderRow, receiverRow)
+                : List.of(receiverRow, senderRow));
+    }
+
+    // The signed-in user must be one of the two participants of the conversation
+    private void requireParticipant(Long userId1, Long userId2) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth.getName();
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        if (!user.getId().equals(userId1) && !user.getId().equals(userId2)) {
+            throw new RuntimeException("Unauthorized to view this conversation");
+        }
+    }
+
+    private ChatConversationDTO convertToDTO(ChatConversation conversation) {
+        return new ChatConversationDTO(
+                conversation.getId(),
+                convertToUserDTO(conversation.getPartner()),
+                conversation.getLastMessageId(),
+                conversation.getLastSenderId(),
+                conversation.getLastMessagePreview(),
+                conversation.getLastMessageAt(),
+                conversation.getUnreadCount()
+        );
+    }
+
+    private UserDTO convertToUserDTO(User user) {
+        return new UserDTO(
+                user.getId(),
+                user.getName(),
+                user.getEmail(),
+                user.getPhone(),
+                user.getRole(),
+                user.getGender(),
+                user.getAge(),
+                user.getSpecialty(),
+                user.getLicenseNumber(),
+                user.getYearsOfExperience(),
+                user.getBio(),
+                user.getClinicName(),
+                user.getClinicLocation(),
+                user.getAvailableHours()
+        );
+    }
+
+    private ChatMessageDTO toDTO(ChatMessage message) {
+        return new ChatMessageDTO(message.getId(), message.getSender().getId(), message.getReceiver().getId(),
+                message.getMessage(), message.getTimestamp(), message.isRead());
+    }
+
+    // Sets the read flag of each message from both participants' watermarks
+    private List<ChatMessage> withReadState(Long userId1, Long userId2, List<ChatMessage> messages) {
+        if (messages.isEmpty()) {
+            return messages;
+        }
+        long readBy1 = lastReadId(userId1, userId2);
+        long readBy2 = lastReadId(userId2, userId1);
+        for (ChatMessage message : messages) {
+            long watermark = message.getReceiver().getId().equals(userId1) ? readBy1 : readBy2;
+            message.setRead(message.getId() <= watermark);
+        }
+        return messages;
+    }
+
+    private long lastReadId(Long userId, Long partnerId) {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT last_read_id FROM chat_read_watermarks WHERE user_id = ? AND partner_id = ?",
+                Long.class, userId, partnerId);
+        return ids.isEmpty() ? 0L : ids.get(0);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,213 @@
+package com.nigga.medivaultsb.service;
+
+import com.nigga.medivaultsb.dto.DoctorDirectoryPage;
+import com.nigga.medivaultsb.dto.UserDTO;
+import com.nigga.medivaultsb.model.User;
+import com.nigga.medivaultsb.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * In-memory copy of every doctor, kept as an immutable {@link Snapshot} that is swapped as a
+ * whole whenever a doctor registers or changes their profile. Readers never lock and always
+ * see one consistent version, identified by its ETag.
+ */
+@Component
+@Slf4j
+public class DoctorDirectory {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private volatile Snapshot snapshot;
+
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        return current != null ? current : refresh();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDoctorProfileChanged(DoctorProfileChangedEvent event) {
+        refresh();
+    }
+
+    // Also picks up doctors edited directly in the database
+    @Scheduled(fixedDelayString = "${medivault.doctors.directory.refresh-interval:600000}", initialDelay = 600000)
+    public void scheduledRefresh() {
+        refresh();
+    }
+
+    private synchronized Snapshot refresh() {
+        List<UserDTO> doctors = userRepository.findByRole("DOCTOR")
+                .stream()
+                .map(DoctorDirectory::toUserDTO)
+                .sorted(Comparator.comparing((UserDTO doctor) -> normalize(doctor.getName()))
+                        .thenComparing(UserDTO::getId))
+                .toList();
+
+        Snapshot previous = snapshot;
+        Snapshot next = new Snapshot(doctors);
+        // Keep the old instance when nothing changed, so its ETag stays valid
+        if (previous != null && previous.etag.equals(next.etag) && previous.doctors.equals(next.doctors)) {
+            return previous;
+        }
+        snapshot = next;
+        log.debug("Doctor directory rebuilt with {} doctors", doctors.size());
+        return next;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static UserDTO toUserDTO(User user) {
+        return new UserDTO(
+                user.getId(),
+                user.getName(),
+                user.getEmail(),
+                user.getPhone(),
+                user.getRole(),
+                user.getGender(),
+                user.getAge(),
+                user.getSpecialty(),
+                user.getLicenseNumber(),
+                user.getYearsOfExperience(),
+                user.getBio(),
+                user.getClinicName(),
+                user.getClinicLocation(),
+                user.getAvailableHours()
+        );
+    }
+
+    /**
+     * One immutable version of the directory. Doctors are held in name order; the indexes map
+     * to positions in that order, so filtered results come out sorted without another sort.
+     */
+    public static final class Snapshot {
+
+        private final List<UserDTO> doctors;
+        private final Map<String, List<Integer>> bySpecialty;
+        private final Map<String, List<Integer>> byLocation;
+        // Every word of every name, for prefix lookups such as "smi" for "John Smith"
+        private final NavigableMap<String, List<Integer>> byNameWord;
+        private final String etag;
+
+        private Snapshot(List<UserDTO> doctors) {
+            this.doctors = doctors;
+            Map<String, List<Integer>> specialties = new HashMap<>();
+            Map<String, List<Integer>> locations = new HashMap<>();
+            NavigableMap<String, List<Integer>> nameWords = new TreeMap<>();
+            long hash = 17;
+            for (int position = 0; position < doctors.size(); position++) {
+                UserDTO doctor = doctors.get(position);
+                addTo(specialties, normalize(doctor.getSpecialty()), position);
+                addTo(locations, normalize(doctor.getClinicLocation()), position);
+                for (String word : normalize(doctor.getName()).split("\\s+")) {
+                    if (!word.isEmpty()) {
+                        addTo(nameWords, word, position);
+                    }
+                }
+                hash = 31 * hash + doctor.hashCode();
+            }
+            this.bySpecialty = specialties;
+            this.byLocation = locations;
+            this.byNameWord = nameWords;
+            this.etag = "\"doctors-" + doctors.size() + "-" + Long.toHexString(hash) + "\"";
+        }
+
+        public List<UserDTO> getDoctors() {
+            return doctors;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * Doctors matching every given filter, in name order. Specialty and location match
+         * exactly, ignoring case; the name filter matches the start of any word of the name.
+         */
+        public DoctorDirectoryPage search(String specialty, String location, String namePrefix, int page, int size) {
+            if (page < 0) {
+                throw new RuntimeException("Page must not be negative");
+            }
+            int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+            List<Collection<Integer>> filters = new ArrayList<>(3);
+            if (specialty != null && !specialty.isBlank()) {
+                filters.add(bySpecialty.getOrDefault(normalize(specialty), List.of()));
+            }
+            if (location != null && !location.isBlank()) {
+                filters.add(byLocation.getOrDefault(normalize(location), List.of()));
+            }
+            if (namePrefix != null && !namePrefix.isBlank()) {
+                String prefix = normalize(namePrefix);
+                // A doctor can match on several words, so collect positions as a set
+                TreeSet<Integer> positions = new TreeSet<>();
+                byNameWord.subMap(prefix, true, prefix + Character.MAX_VALUE, false)
+                        .values()
+                        .forEach(positions::addAll);
+                filters.add(positions);
+            }
+
+            List<Integer> matches;
+            if (filters.isEmpty()) {
+                matches = null;
+            } else {
+                // Walk the most selective index and probe the others
+                filters.sort(Comparator.comparingInt(Collection::size));
+                matches = new ArrayList<>();
+                for (Integer position : filters.get(0)) {
+                    boolean all = true;
+                    for (int i = 1; i < filters.size() && all; i++) {
+                        all = containsPosition(filters.get(i), position);
+                    }
+                    if (all) {
+                        matches.add(position);
+                    }
+                }
+            }
+
+            int total = matches == null ? doctors.size() : matches.size();
+            long from = Math.min((long) page * pageSize, total);
+            int to = (int) Math.min(from + pageSize, total);
+            List<UserDTO> items = new ArrayList<>(to - (int) from);
+            for (int i = (int) from; i < to; i++) {
+                items.add(doctors.get(matches == null ? i : matches.get(i)));
+            }
+            return new DoctorDirectoryPage(items, page, pageSize, total);
+        }
+
+        // Index lists are built in ascending position order, so they can be binary searched
+        private static boolean containsPosition(Collection<Integer> positions, Integer position) {
+            if (positions instanceof List<Integer> list) {
+                return Collections.binarySearch(list, position) >= 0;
+            }
+            return positions.contains(position);
+        }
+
+        private static void addTo(Map<String, List<Integer>> index, String key, int position) {
+            if (!key.isEmpty()) {
+                index.computeIfAbsent(key, k -> new ArrayList<>()).add(position);
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.nigga.medivaultsb.service;
+
+/**
+ * Published inside the transaction that creates or edits a doctor; the doctor directory is
+ * rebuilt after commit.
+ */
+public record DoctorProfileChangedEvent(Long doctorId) {
+}
@@ -0,0 +1,182 @@
+package com.nigga.medivaultsb.service;
+
+import com.nigga.medivaultsb.model.EmailOutboxMessage;
+import com.nigga.medivaultsb.repository.EmailOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Delivers queued emails from {@code email_outbox}. Each poll claims batches of due messages and
+ * hands every batch to one worker of the mail executor, which sends the whole batch over a
+ * single SMTP connection. Failed messages are retried with exponential backoff and marked DEAD
+ * after the configured number of attempts.
+ */
+@Component
+@Slf4j
+public class EmailOutboxDispatcher {
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Autowired
+    @Qualifier("mailExecutor")
+    private TaskExecutor mailExecutor;
+
+    @Value("${medivault.mail.outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${medivault.mail.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${medivault.mail.outbox.initial-backoff:30s}")
+    private Duration initialBackoff;
+
+    @Value("${medivault.mail.outbox.max-backoff:1h}")
+    private Duration maxBackoff;
+
+    @Value("${medivault.mail.outbox.lease:5m}")
+    private Duration lease;
+
+    @Value("${medivault.mail.outbox.retention:7d}")
+    private Duration retention;
+
+    // One permit per worker, so no more batches are claimed than can be sent right away
+    private final Semaphore workers;
+
+    public EmailOutboxDispatcher(@Value("${medivault.mail.outbox.workers:2}") int workerCount) {
+        this.workers = new Semaphore(workerCount);
+    }
+
+    @Scheduled(fixedDelayString = "${medivault.mail.outbox.poll-interval:5000}", initialDelay = 10000)
+    public void dispatch() {
+        while (workers.tryAcquire()) {
+            String token = UUID.randomUUID().toString();
+            LocalDateTime now = LocalDateTime.now();
+            List<EmailOutboxMessage> batch;
+            try {
+                int claimed = emailOutboxRepository.claimBatch(token, now, now.plus(lease), batchSize);
+                batch = claimed > 0 ? emailOutboxRepository.findByClaimToken(token) : List.of();
+            } catch (RuntimeException e) {
+                workers.release();
+                log.warn("Could not claim queued emails: {}", e.getMessage());
+                return;
+            }
+
+            if (batch.isEmpty()) {
+                workers.release();
+                return;
+            }
+
+            try {
+                mailExecutor.execute(() -> {
+                    try {
+                        deliver(batch, token);
+                    } finally {
+                        workers.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                // The claim lapses after the lease and the batch is picked up again
+                workers.release();
+                log.warn("Could not hand {} queued emails to the mail executor: {}", batch.size(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelay = 3600000, initialDelay = 60000)
+    public void purgeSent() {
+        int purged = emailOutboxRepository.deleteSentBefore(LocalDateTime.now().minus(retention));
+        if (purged > 0) {
+            log.info("Purged {} sent emails from the outbox", purged);
+        }
+    }
+
+    private void deliver(List<EmailOutboxMessage> batch, String token) {
+        Map<SimpleMailMessage, EmailOutboxMessage> byMail = new IdentityHashMap<>();
+        for (EmailOutboxMessage outboxMessage : batch) {
+            SimpleMailMessage mail = new SimpleMailMessage();
+            mail.setTo(outboxMessage.getRecipient());
+            mail.setSubject(outboxMessage.getSubject());
+            mail.setText(outboxMessage.getBody());
+            byMail.put(mail, outboxMessage);
+        }
+
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        try {
+            mailSender.send(byMail.keySet().toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                byMail.keySet().forEach(mail -> failures.put(mail, e));
+            } else {
+                failures.putAll(e.getFailedMessages());
+            }
+        } catch (MailException e) {
+            // Authentication or connection problems fail the whole batch
+            byMail.keySet().forEach(mail -> failures.put(mail, e));
+        }
+
+        List<Long> sentIds = new ArrayList<>();
+        for (Map.Entry<SimpleMailMessage, EmailOutboxMessage> entry : byMail.entrySet()) {
+            Exception failure = failures.get(entry.getKey());
+            if (failure == null) {
+                sentIds.add(entry.getValue().getId());
+            } else {
+                handleFailure(entry.getValue(), token, failure);
+            }
+        }
+        if (!sentIds.isEmpty()) {
+            emailOutboxRepository.markSent(sentIds, token, LocalDateTime.now());
+        }
+    }
+
+    private void handleFailure(EmailOutboxMessage message, String token, Exception failure) {
+        String error = failure.getMessage() != null ? failure.getMessage() : failure.getClass().getSimpleName();
+        if (error.length() > 1000) {
+            error = error.substring(0, 1000);
+        }
+
+        if (message.getAttempts() >= maxAttempts) {
+            log.error("Giving up on email {} to {} after {} attempts: {}",
+                    message.getId(), message.getRecipient(), message.getAttempts(), error);
+            emailOutboxRepository.markDead(message.getId(), token, error);
+            return;
+        }
+
+        LocalDateTime nextAttemptAt = LocalDateTime.now().plus(backoff(message.getAttempts()));
+        log.warn("Email {} to {} failed on attempt {}, retrying at {}: {}",
+                message.getId(), message.getRecipient(), message.getAttempts(), nextAttemptAt, error);
+        emailOutboxRepository.scheduleRetry(message.getId(), token, nextAttemptAt, error);
+    }
+
+    // Doubles per attempt up to the cap, with jitter so failed batches do not retry in lockstep
+    private Duration backoff(int attempts) {
+        long initialMillis = initialBackoff.toMillis();
+        long maxMillis = maxBackoff.toMillis();
+        long millis = initialMillis << Math.min(Math.max(attempts - 1, 0), 20);
+        millis = Math.min(millis, maxMillis);
+        return Duration.ofMillis(millis / 2 + ThreadLocalRandom.current().nextLong(millis / 2 + 1));
+    }
+}
@@ -1,15 +1,29 @@
 package com.nigga.medivaultsb.service;
 
+import com.nigga.medivaultsb.model.EmailOutboxMessage;
+import com.nigga.medivaultsb.repository.EmailOutboxRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Service
 public class EmailService {
     @Autowired
     private JavaMailSender mailSender;
 
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     public void sendEmail(String to, String subject, String text) {
         SimpleMailMessage message = new SimpleMailMessage();
         message.setTo(to);
@@ -17,4 +31,54 @@ public class EmailService {
         message.setText(text);
         mailSender.send(message);
     }
-} 
\ No newline at end of file
+
+    /**
+     * Writes the email to the outbox as part of the caller's transaction, so it is sent if and
+     * only if that transaction commits. {@link EmailOutboxDispatcher} delivers it shortly after.
+     */
+    @Transactional
+    public void queueEmail(String to, String subject, String text) {
+        EmailOutboxMessage message = new EmailOutboxMessage();
+        message.setRecipient(to);
+        message.setSubject(subject);
+        message.setBody(text);
+        emailOutboxRepository.save(message);
+    }
+
+    /**
+     * Like {@link #queueEmail}, but does nothing if an email with the same key was queued before.
+     *
+     * @return whether the email was queued by this call
+     */
+    @Transactional
+    public boolean queueEmailOnce(String dedupKey, String to, String subject, String text) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.update(
+                "INSERT INTO email_outbox (dedup_key, recipient, subject, body, status, attempts, next_attempt_at, created_at) " +
+                "VALUES (?, ?, ?, ?, 'PENDING', 0, ?, ?) ON CONFLICT (dedup_key) DO NOTHING",
+                dedupKey, to, subject, text, now, now) > 0;
+    }
+
+    /**
+     * Queues several emails with one batched insert, in the caller's transaction.
+     */
+    @Transactional
+    public void queueEmails(List<EmailOutboxMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO email_outbox (recipient, subject, body, status, attempts, next_attempt_at, created_at) " +
+                "VALUES (?, ?, ?, 'PENDING', 0, ?, ?)",
+                messages,
+                messages.size(),
+                (ps, message) -> {
+                    ps.setString(1, message.getRecipient());
+                    ps.setString(2, message.getSubject());
+                    ps.setString(3, message.getBody());
+                    ps.setTimestamp(4, now);
+                    ps.setTimestamp(5, now);
+                });
+    }
+}
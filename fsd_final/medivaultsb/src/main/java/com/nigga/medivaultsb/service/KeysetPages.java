@@ -0,0 +1,68 @@
+package com.nigga.medivaultsb.service;
+
+import com.nigga.medivaultsb.dto.CursorPage;
+import com.nigga.medivaultsb.dto.PageCursor;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Turns keyset query results into a {@link CursorPage}. Repositories fetch one row more than
+ * the page size to find out whether another page follows; backward queries return rows in
+ * reverse display order.
+ */
+final class KeysetPages {
+
+    static final int MAX_LIMIT = 100;
+
+    private KeysetPages() {
+    }
+
+    static int clampLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    // One extra row tells whether there is a further page
+    static Limit fetchLimit(int limit) {
+        return Limit.of(limit + 1);
+    }
+
+    /**
+     * @param rows the query result for {@code fetchLimit(limit)}
+     * @param backward whether the rows were fetched in reverse display order
+     * @param hasCursor whether the query started from a cursor rather than an end of the list
+     */
+    static <E, T> CursorPage<T> build(List<E> rows, int limit, boolean backward, boolean hasCursor,
+                                      Function<E, LocalDateTime> keyOf, Function<E, Long> idOf,
+                                      Function<E, T> mapper) {
+        boolean hasMore = rows.size() > limit;
+        List<E> window = new ArrayList<>(rows.subList(0, Math.min(rows.size(), limit)));
+        if (backward) {
+            Collections.reverse(window);
+        }
+
+        String nextCursor = null;
+        String prevCursor = null;
+        if (!window.isEmpty()) {
+            E first = window.get(0);
+            E last = window.get(window.size() - 1);
+            if (backward) {
+                prevCursor = hasMore ? new PageCursor(keyOf.apply(first), idOf.apply(first), true).encode() : null;
+                nextCursor = new PageCursor(keyOf.apply(last), idOf.apply(last), false).encode();
+            } else {
+                nextCursor = hasMore ? new PageCursor(keyOf.apply(last), idOf.apply(last), false).encode() : null;
+                prevCursor = hasCursor ? new PageCursor(keyOf.apply(first), idOf.apply(first), true).encode() : null;
+            }
+        }
+
+        List<T> items = window.stream()
+                .map(mapper)
+                .collect(Collectors.toList());
+        return new CursorPage<>(items, nextCursor, prevCursor);
+    }
+}
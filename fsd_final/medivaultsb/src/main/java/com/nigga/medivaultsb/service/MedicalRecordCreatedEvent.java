@@ -0,0 +1,8 @@
+package com.nigga.medivaultsb.service;
+
+/**
+ * Published inside the transaction that saves a medical record; listeners that derive data
+ * from the payload run after commit.
+ */
+public record MedicalRecordCreatedEvent(Long recordId) {
+}
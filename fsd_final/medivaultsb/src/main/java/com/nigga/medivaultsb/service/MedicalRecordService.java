@@ -1,12 +1,25 @@
 package com.nigga.medivaultsb.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nigga.medivaultsb.dto.CursorPage;
 import com.nigga.medivaultsb.dto.MedicalRecordDTO;
+import com.nigga.medivaultsb.dto.PageCursor;
 import com.nigga.medivaultsb.model.MedicalRecord;
+import com.nigga.medivaultsb.model.RecordRendition;
 import com.nigga.medivaultsb.model.User;
+import com.nigga.medivaultsb.repository.MedicalRecordExportRow;
 import com.nigga.medivaultsb.repository.MedicalRecordRepository;
+import com.nigga.medivaultsb.repository.MedicalRecordSummary;
 import com.nigga.medivaultsb.repository.UserRepository;
-import com.nigga.medivaultsb.util.FileUtil;
+import com.nigga.medivaultsb.rendition.RecordRenditionService;
+import com.nigga.medivaultsb.storage.CompressionCodec;
+import com.nigga.medivaultsb.storage.CompressionPolicy;
+import com.nigga.medivaultsb.storage.ContentAddressedRecordStore;
+import com.nigga.medivaultsb.storage.RecordFile;
+import com.nigga.medivaultsb.storage.StoredObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -14,17 +27,44 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @Service
 public class MedicalRecordService {
 
+    private static final int MAX_SEARCH_RESULTS = 100;
+
     @Autowired
     private MedicalRecordRepository medicalRecordRepository;
     
     @Autowired
     private UserRepository userRepository;
+    
+    @Autowired
+    private ContentAddressedRecordStore contentAddressedRecordStore;
+    
+    @Autowired
+    private CompressionPolicy compressionPolicy;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private RecordRenditionService recordRenditionService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     public List<MedicalRecordDTO> getMedicalRecords() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -32,16 +72,53 @@ public class MedicalRecordService {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
-        return medicalRecordRepository.findByPatientOrderByUploadedAtDesc(user)
+        return medicalRecordRepository.findSummariesByPatientIdOrderByUploadedAtDesc(user.getId())
                 .stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
     
+    public CursorPage<MedicalRecordDTO> getMedicalRecords(int limit, String cursor) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth.getName();
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        
+        int pageSize = KeysetPages.clampLimit(limit);
+        PageCursor position = PageCursor.decode(cursor);
+        List<MedicalRecordSummary> rows;
+        if (position == null) {
+            rows = medicalRecordRepository.findSummariesByPatientIdOrderByUploadedAtDescIdDesc(
+                    user.getId(), KeysetPages.fetchLimit(pageSize));
+        } else if (position.backward()) {
+            rows = medicalRecordRepository.findSummariesBefore(
+                    user.getId(), position.key(), position.id(), KeysetPages.fetchLimit(pageSize));
+        } else {
+            rows = medicalRecordRepository.findSummariesAfter(
+                    user.getId(), position.key(), position.id(), KeysetPages.fetchLimit(pageSize));
+        }
+        
+        return KeysetPages.build(rows, pageSize, position != null && position.backward(), position != null,
+                MedicalRecordSummary::getUploadedAt, MedicalRecordSummary::getId, this::convertToDTO);
+    }
+    
     @Transactional
     public MedicalRecordDTO addMedicalRecord(String title, String doctorName, 
                                           String recordType, String description,
                                           MultipartFile file) throws IOException {
+        return addMedicalRecord(title, doctorName, recordType, description,
+                file, file.getOriginalFilename(), file.getContentType());
+    }
+    
+    /**
+     * Adds a record whose payload is re-readable from local storage, such as a multipart
+     * spool file or an assembled resumable upload.
+     */
+    @Transactional
+    public MedicalRecordDTO addMedicalRecord(String title, String doctorName,
+                                          String recordType, String description,
+                                          InputStreamSource source, String fileName,
+                                          String contentType) throws IOException {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String email = auth.getName();
         User patient = userRepository.findByEmail(email)
@@ -53,18 +130,93 @@ public class MedicalRecordService {
         medicalRecord.setDoctorName(doctorName);
         medicalRecord.setRecordType(recordType);
         medicalRecord.setDescription(description);
-        medicalRecord.setFileName(file.getOriginalFilename());
-        medicalRecord.setContentType(file.getContentType());
+        medicalRecord.setFileName(fileName);
+        medicalRecord.setContentType(contentType);
         
-        // Use our utility class to safely convert the file to byte array
-        byte[] fileBytes = FileUtil.convertToByteArray(file);
-        medicalRecord.setFileData(fileBytes);
+        // Identical payloads are stored once and shared by reference
+        StoredObject stored = contentAddressedRecordStore.put(source, contentType);
+        medicalRecord.setStorageKey(stored.key());
+        medicalRecord.setFileSize(stored.size());
         
         MedicalRecord savedRecord = medicalRecordRepository.save(medicalRecord);
+        // Indexed for search and rendered as a thumbnail once this transaction commits
+        eventPublisher.publishEvent(new MedicalRecordCreatedEvent(savedRecord.getId()));
         return convertToDTO(savedRecord);
     }
     
-    public byte[] getMedicalRecordFile(Long id) {
+    public List<MedicalRecordDTO> searchMedicalRecords(String query, int limit) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth.getName();
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        
+        if (query == null || query.isBlank()) {
+            throw new RuntimeException("Search query is required");
+        }
+        
+        List<Long> rankedIds = medicalRecordRepository.searchRecordIds(
+                user.getId(), query, Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)));
+        if (rankedIds.isEmpty()) {
+            return List.of();
+        }
+        
+        Map<Long, Integer> rankById = new HashMap<>();
+        for (int i = 0; i < rankedIds.size(); i++) {
+            rankById.put(rankedIds.get(i), i);
+        }
+        return medicalRecordRepository.findSummariesByIdIn(rankedIds)
+                .stream()
+                .sorted(Comparator.comparing(summary -> rankById.get(summary.getId())))
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+    
+    // Reads the lazily loaded blob for its codec, so it needs a session of its own
+    @Transactional(readOnly = true)
+    public RecordFile getMedicalRecordFile(Long id) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth.getName();
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        
+        MedicalRecord record = medicalRecordRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Medical record not found"));
+        
+        if (!record.getPatient().getId().equals(user.getId())) {
+            throw new RuntimeException("Unauthorized access to medical record");
+        }
+        
+        return new RecordFile(
+                record.getStorageKey(),
+                record.getFileName(),
+                record.getContentType(),
+                record.getFileSize(),
+                CompressionCodec.valueOf(record.getBlob().getCodec())
+        );
+    }
+    
+    /**
+     * Returns the record's thumbnail, or empty while it is still being rendered or when the
+     * file type has no preview.
+     */
+    public Optional<RecordRendition> getMedicalRecordThumbnail(Long id) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth.getName();
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        
+        MedicalRecord record = medicalRecordRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Medical record not found"));
+        
+        if (!record.getPatient().getId().equals(user.getId())) {
+            throw new RuntimeException("Unauthorized access to medical record");
+        }
+        
+        return recordRenditionService.findThumbnail(record.getStorageKey());
+    }
+    
+    @Transactional
+    public void deleteMedicalRecord(Long id) throws IOException {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         String email = auth.getName();
         User user = userRepository.findByEmail(email)
@@ -77,7 +229,85 @@ public class MedicalRecordService {
             throw new RuntimeException("Unauthorized access to medical record");
         }
         
-        return record.getFileData();
+        medicalRecordRepository.delete(record);
+        contentAddressedRecordStore.release(record.getStorageKey());
+    }
+    
+    public void writeMedicalRecordFile(RecordFile file, long offset, long length,
+                                       OutputStream outputStream) throws IOException {
+        contentAddressedRecordStore.transferTo(file, offset, length, outputStream);
+    }
+    
+    public Optional<Path> getLocalFile(RecordFile file) {
+        return contentAddressedRecordStore.localPath(file);
+    }
+    
+    public List<MedicalRecordExportRow> getMedicalRecordsForExport() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth.getName();
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        
+        return medicalRecordRepository.findExportRowsByPatientId(user.getId());
+    }
+    
+    /**
+     * Writes a ZIP with a manifest.json of all records followed by one entry per file, each
+     * streamed from storage. Only the metadata rows are held in memory, never a payload.
+     */
+    public void writeExport(List<MedicalRecordExportRow> rows, OutputStream outputStream) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(outputStream);
+        
+        List<MedicalRecordDTO> manifest = rows.stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+        zip.putNextEntry(new ZipEntry("manifest.json"));
+        zip.write(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(manifest));
+        zip.closeEntry();
+        
+        for (MedicalRecordExportRow row : rows) {
+            RecordFile file = new RecordFile(
+                    row.getStorageKey(),
+                    row.getFileName(),
+                    row.getContentType(),
+                    row.getFileSize(),
+                    CompressionCodec.valueOf(row.getCodec())
+            );
+            
+            // Recompressing JPEG, PNG and similar formats only burns CPU
+            zip.setLevel(compressionPolicy.codecFor(file.contentType()) == CompressionCodec.NONE
+                    ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+            
+            String entryName = "records/" + row.getId() + "_" + sanitizeEntryName(row.getFileName());
+            zip.putNextEntry(new ZipEntry(entryName));
+            try (InputStream inputStream = contentAddressedRecordStore.open(file)) {
+                inputStream.transferTo(zip);
+            }
+            zip.closeEntry();
+        }
+        
+        zip.finish();
+    }
+    
+    private String sanitizeEntryName(String fileName) {
+        if (fileName == null || fileName.isBlank()) {
+            return "file";
+        }
+        return fileName.replaceAll("[\\\\/:*?\"<>|]", "_").replace("..", "_");
+    }
+    
+    private MedicalRecordDTO convertToDTO(MedicalRecordSummary summary) {
+        return new MedicalRecordDTO(
+                summary.getId(),
+                summary.getTitle(),
+                summary.getDoctorName(),
+                summary.getRecordType(),
+                summary.getDescription(),
+                summary.getFileName(),
+                summary.getContentType(),
+                summary.getFileSize(),
+                summary.getUploadedAt()
+        );
     }
     
     private MedicalRecordDTO convertToDTO(MedicalRecord record) {
@@ -88,6 +318,8 @@ public class MedicalRecordService {
                 record.getRecordType(),
                 record.getDescription(),
                 record.getFileName(),
+                record.getContentType(),
+                record.getFileSize(),
                 record.getUploadedAt()
         );
     }
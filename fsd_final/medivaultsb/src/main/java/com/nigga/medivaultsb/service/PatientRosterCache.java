@@ -0,0 +1,68 @@
+package com.nigga.medivaultsb.service;
+
+import com.nigga.medivaultsb.dto.PatientRosterPage;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Roster pages per doctor, dropped as a whole once an appointment with that doctor is created
+ * or deleted. A page loaded while its doctor's pages are dropped lands in the discarded map, so
+ * it is never served afterwards.
+ */
+@Component
+public class PatientRosterCache {
+
+    private static final int MAX_PAGES_PER_DOCTOR = 32;
+
+    private final Map<Long, DoctorPages> byDoctor = new ConcurrentHashMap<>();
+
+    public PatientRosterPage get(Long doctorId, String namePrefix, int page, int size,
+                                 Supplier<PatientRosterPage> loader) {
+        DoctorPages pages = byDoctor.computeIfAbsent(doctorId, id -> new DoctorPages());
+        PageKey key = new PageKey(namePrefix, page, size);
+        PatientRosterPage cached = pages.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        PatientRosterPage loaded = loader.get();
+        pages.put(key, loaded);
+        return loaded;
+    }
+
+    public void invalidateAfterCommit(Long doctorId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                byDoctor.remove(doctorId);
+            }
+        });
+    }
+
+    private record PageKey(String namePrefix, int page, int size) {
+    }
+
+    // Least recently used pages are evicted first
+    private static final class DoctorPages {
+
+        private final LinkedHashMap<PageKey, PatientRosterPage> pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PageKey, PatientRosterPage> eldest) {
+                return size() > MAX_PAGES_PER_DOCTOR;
+            }
+        };
+
+        synchronized PatientRosterPage get(PageKey key) {
+            return pages.get(key);
+        }
+
+        synchronized void put(PageKey key, PatientRosterPage page) {
+            pages.put(key, page);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.nigga.medivaultsb.service;
 
+import com.nigga.medivaultsb.dto.CursorPage;
+import com.nigga.medivaultsb.dto.PageCursor;
 import com.nigga.medivaultsb.dto.PrescriptionDTO;
 import com.nigga.medivaultsb.dto.UserDTO;
 import com.nigga.medivaultsb.model.Prescription;
@@ -48,6 +50,54 @@ public class PrescriptionService {
                 .collect(Collectors.toList());
     }
     
+    public CursorPage<PrescriptionDTO> getPatientPrescriptions(int limit, String cursor) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth.getName();
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        
+        int pageSize = KeysetPages.clampLimit(limit);
+        PageCursor position = PageCursor.decode(cursor);
+        List<Prescription> rows;
+        if (position == null) {
+            rows = prescriptionRepository.findByPatientOrderByPrescribedAtDescIdDesc(
+                    user, KeysetPages.fetchLimit(pageSize));
+        } else if (position.backward()) {
+            rows = prescriptionRepository.findPatientPrescriptionsBefore(
+                    user, position.key(), position.id(), KeysetPages.fetchLimit(pageSize));
+        } else {
+            rows = prescriptionRepository.findPatientPrescriptionsAfter(
+                    user, position.key(), position.id(), KeysetPages.fetchLimit(pageSize));
+        }
+        
+        return KeysetPages.build(rows, pageSize, position != null && position.backward(), position != null,
+                Prescription::getPrescribedAt, Prescription::getId, this::convertToDTO);
+    }
+    
+    public CursorPage<PrescriptionDTO> getDoctorPrescriptions(int limit, String cursor) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth.getName();
+        User user = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+        
+        int pageSize = KeysetPages.clampLimit(limit);
+        PageCursor position = PageCursor.decode(cursor);
+        List<Prescription> rows;
+        if (position == null) {
+            rows = prescriptionRepository.findByDoctorOrderByPrescribedAtDescIdDesc(
+                    user, KeysetPages.fetchLimit(pageSize));
+        } else if (position.backward()) {
+            rows = prescriptionRepository.findDoctorPrescriptionsBefore(
+                    user, position.key(), position.id(), KeysetPages.fetchLimit(pageSize));
+        } else {
+            rows = prescriptionRepository.findDoctorPrescriptionsAfter(
+                    user, position.key(), position.id(), KeysetPages.fetchLimit(pageSize));
+        }
+        
+        return KeysetPages.build(rows, pageSize, position != null && position.backward(), position != null,
+                Prescription::getPrescribedAt, Prescription::getId, this::convertToDTO);
+    }
+    
     @Transactional
     public PrescriptionDTO addPrescription(Long patientId, String medication, 
                                          String dosage, String instructions) {
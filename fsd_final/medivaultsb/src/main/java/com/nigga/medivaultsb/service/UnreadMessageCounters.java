@@ -0,0 +1,115 @@
+package com.nigga.medivaultsb.service;
+
+import com.nigga.medivaultsb.repository.ChatMessageRepository;
+import com.nigga.medivaultsb.repository.UnreadCountRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Unread chat message counts per user, kept in memory so the unread badge does not cost a
+ * query. Counts are loaded from the database once the application is ready, adjusted as messages
+ * are sent and read on this instance, and reconciled with the database periodically, which also
+ * picks up changes made through other instances. Until the first load completes, counts come
+ * from the database.
+ *
+ * <p>Each user's total is kept next to the per-sender counts it is made of, so marking one
+ * conversation read can subtract exactly what that sender contributed.
+ */
+@Component
+@Slf4j
+public class UnreadMessageCounters {
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    // Null until loaded
+    private volatile Map<Long, UserCounts> counts;
+
+    public long get(Long userId) {
+        Map<Long, UserCounts> current = counts;
+        if (current == null) {
+            return chatMessageRepository.countUnreadMessages(userId);
+        }
+        UserCounts userCounts = current.get(userId);
+        return userCounts == null ? 0L : Math.max(0L, userCounts.total.sum());
+    }
+
+    /**
+     * Counts a new message for its receiver once the current transaction commits. Registered
+     * before the push event is published, so pushes already see the new count.
+     */
+    public void incrementAfterCommit(Long receiverId, Long senderId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                Map<Long, UserCounts> current = counts;
+                if (current != null) {
+                    current.computeIfAbsent(receiverId, id -> new UserCounts()).add(senderId, 1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Drops everything {@code senderId} has sent to {@code readerId} from the reader's count once
+     * the current transaction commits.
+     */
+    public void clearAfterCommit(Long readerId, Long senderId) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                Map<Long, UserCounts> current = counts;
+                UserCounts userCounts = current != null ? current.get(readerId) : null;
+                if (userCounts != null) {
+                    userCounts.clear(senderId);
+                }
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reconcile();
+    }
+
+    // Corrects drift from messages sent or read through other instances; updates that land while
+    // the counts are being reloaded may be lost until the next run
+    @Scheduled(fixedDelayString = "${medivault.chat.unread.reconcile-interval:300000}",
+               initialDelayString = "${medivault.chat.unread.reconcile-interval:300000}")
+    public void reconcile() {
+        Map<Long, UserCounts> loaded = new ConcurrentHashMap<>();
+        for (UnreadCountRow row : chatMessageRepository.countAllUnreadMessages()) {
+            loaded.computeIfAbsent(row.getReceiverId(), id -> new UserCounts()).add(row.getSenderId(), row.getUnread());
+        }
+        counts = loaded;
+        log.debug("Unread message counts loaded for {} users", loaded.size());
+    }
+
+    private static final class UserCounts {
+
+        private final LongAdder total = new LongAdder();
+        private final Map<Long, LongAdder> bySender = new ConcurrentHashMap<>();
+
+        void add(Long senderId, long delta) {
+            bySender.computeIfAbsent(senderId, id -> new LongAdder()).add(delta);
+            total.add(delta);
+        }
+
+        void clear(Long senderId) {
+            LongAdder fromSender = bySender.get(senderId);
+            if (fromSender != null) {
+                total.add(-fromSender.sumThenReset());
+            }
+        }
+    }
+}
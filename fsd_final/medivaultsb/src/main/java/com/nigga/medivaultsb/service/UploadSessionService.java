@@ -0,0 +1,309 @@
+package com.nigga.medivaultsb.service;
+
+import com.nigga.medivaultsb.dto.MedicalRecordDTO;
+import com.nigga.medivaultsb.dto.UploadSessionDTO;
+import com.nigga.medivaultsb.model.UploadSession;
+import com.nigga.medivaultsb.model.User;
+import com.nigga.medivaultsb.repository.UploadSessionRepository;
+import com.nigga.medivaultsb.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Resumable uploads: a client creates a session, appends the file in chunks at the offset the
+ * server reports, and completes the session once every byte has arrived. Chunks are appended
+ * to a staging file on local disk, so a dropped connection only loses the chunk in flight.
+ */
+@Service
+@Slf4j
+public class UploadSessionService {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final String STAGING_SUFFIX = ".part";
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MedicalRecordService medicalRecordService;
+
+    @Value("${medivault.upload.staging-dir}")
+    private String stagingDir;
+
+    @Value("${medivault.upload.max-size}")
+    private long maxUploadSize;
+
+    @Value("${medivault.upload.session-ttl}")
+    private Duration sessionTtl;
+
+    @Transactional
+    public UploadSessionDTO createSession(String title, String doctorName, String recordType,
+                                          String description, String fileName, String contentType,
+                                          long totalSize) {
+        User patient = getCurrentUser();
+
+        if (fileName == null || fileName.isBlank()) {
+            throw new RuntimeException("File name is required");
+        }
+        if (totalSize < 0 || totalSize > maxUploadSize) {
+            throw new RuntimeException("File size must be between 0 and " + maxUploadSize + " bytes");
+        }
+
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setPatient(patient);
+        session.setTitle(title);
+        session.setDoctorName(doctorName);
+        session.setRecordType(recordType);
+        session.setDescription(description);
+        session.setFileName(fileName);
+        session.setContentType(contentType != null && !contentType.isBlank()
+                ? contentType : "application/octet-stream");
+        session.setTotalSize(totalSize);
+
+        UploadSession savedSession = uploadSessionRepository.save(session);
+        return convertToDTO(savedSession, 0);
+    }
+
+    public UploadSessionDTO getSession(String id) throws IOException {
+        UploadSession session = findOwnedSession(id);
+        return convertToDTO(session, receivedBytes(session));
+    }
+
+    /**
+     * Appends the request body at {@code offset}, which must equal the number of bytes received
+     * so far. Bytes written before a connection drop are kept, so the client resumes from
+     * whatever offset {@link #getSession} reports afterwards.
+     */
+    public UploadSessionDTO appendChunk(String id, long offset, InputStream body) throws IOException {
+        UploadSession session = findOwnedSession(id);
+        Path stagingFile = resolveStagingFile(session);
+        Files.createDirectories(stagingFile.getParent());
+
+        try (FileChannel channel = FileChannel.open(stagingFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = tryLock(channel);
+            try {
+                long received = channel.size();
+                if (offset != received) {
+                    throw new RuntimeException("Upload offset mismatch: expected " + received + " but got " + offset);
+                }
+
+                long position = received;
+                ReadableByteChannel source = Channels.newChannel(body);
+                ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+                while (source.read(buffer) != -1) {
+                    buffer.flip();
+                    if (position + buffer.remaining() > session.getTotalSize()) {
+                        channel.truncate(received);
+                        throw new RuntimeException("Chunk extends past the declared file size of "
+                                + session.getTotalSize() + " bytes");
+                    }
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                    buffer.clear();
+                }
+
+                return convertToDTO(session, position);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    /**
+     * Turns a fully received upload into a medical record. The staging file is streamed into
+     * record storage as-is and removed once the record has been committed.
+     */
+    @Transactional
+    public MedicalRecordDTO completeSession(String id) throws IOException {
+        UploadSession session = findOwnedSession(id);
+        Path stagingFile = resolveStagingFile(session);
+        Files.createDirectories(stagingFile.getParent());
+
+        try (FileChannel channel = FileChannel.open(stagingFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = tryLock(channel);
+            try {
+                long received = channel.size();
+                if (received != session.getTotalSize()) {
+                    throw new RuntimeException("Upload incomplete: received " + received
+                            + " of " + session.getTotalSize() + " bytes");
+                }
+
+                MedicalRecordDTO record = medicalRecordService.addMedicalRecord(
+                        session.getTitle(),
+                        session.getDoctorName(),
+                        session.getRecordType(),
+                        session.getDescription(),
+                        new FileSystemResource(stagingFile),
+                        session.getFileName(),
+                        session.getContentType());
+
+                uploadSessionRepository.delete(session);
+                deleteAfterCommit(stagingFile);
+                return record;
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    @Transactional
+    public void abortSession(String id) {
+        UploadSession session = findOwnedSession(id);
+        uploadSessionRepository.delete(session);
+        deleteAfterCommit(resolveStagingFile(session));
+    }
+
+    @Scheduled(fixedDelay = 3600000, initialDelay = 60000)
+    @Transactional
+    public void purgeExpiredSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(sessionTtl);
+        // Before the sessions below are deleted, whose files are removed once that commits
+        purgeOrphanedStagingFiles();
+        for (UploadSession session : uploadSessionRepository.findByCreatedAtBefore(cutoff)) {
+            log.info("Purging expired upload session {}", session.getId());
+            uploadSessionRepository.delete(session);
+            deleteAfterCommit(resolveStagingFile(session));
+        }
+    }
+
+    /**
+     * Deletes staging files older than the session TTL that no session row refers to, such as one
+     * left behind by a crash before its row was written or after it was deleted.
+     */
+    private void purgeOrphanedStagingFiles() {
+        Path dir = Paths.get(stagingDir).toAbsolutePath();
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+
+        Instant cutoff = Instant.now().minus(sessionTtl);
+        Map<String, Path> staleFiles = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + STAGING_SUFFIX)) {
+            for (Path file : files) {
+                // Files still being appended to are recent, whatever their session's age
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    String name = file.getFileName().toString();
+                    staleFiles.put(name.substring(0, name.length() - STAGING_SUFFIX.length()), file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not list staging directory {}: {}", dir, e.getMessage());
+            return;
+        }
+        if (staleFiles.isEmpty()) {
+            return;
+        }
+
+        for (UploadSession session : uploadSessionRepository.findAllById(staleFiles.keySet())) {
+            staleFiles.remove(session.getId());
+        }
+        for (Path orphan : staleFiles.values()) {
+            log.info("Purging orphaned staging file {}", orphan);
+            try {
+                Files.deleteIfExists(orphan);
+            } catch (IOException e) {
+                log.warn("Could not delete staging file {}: {}", orphan, e.getMessage());
+            }
+        }
+    }
+
+    private UploadSession findOwnedSession(String id) {
+        User user = getCurrentUser();
+        UploadSession session = uploadSessionRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Upload session not found"));
+
+        if (!session.getPatient().getId().equals(user.getId())) {
+            throw new RuntimeException("Unauthorized access to upload session");
+        }
+        return session;
+    }
+
+    private User getCurrentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth.getName();
+        return userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    private FileLock tryLock(FileChannel channel) throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            throw new RuntimeException("Another request is currently writing to this upload");
+        }
+        return lock;
+    }
+
+    private long receivedBytes(UploadSession session) throws IOException {
+        Path stagingFile = resolveStagingFile(session);
+        return Files.exists(stagingFile) ? Files.size(stagingFile) : 0;
+    }
+
+    // Session ids are server-generated UUIDs, so they are safe to use as file names
+    private Path resolveStagingFile(UploadSession session) {
+        return Paths.get(stagingDir).toAbsolutePath().resolve(session.getId() + STAGING_SUFFIX);
+    }
+
+    private void deleteAfterCommit(Path stagingFile) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    Files.deleteIfExists(stagingFile);
+                } catch (IOException e) {
+                    log.warn("Could not delete staging file {}: {}", stagingFile, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private UploadSessionDTO convertToDTO(UploadSession session, long offset) {
+        return new UploadSessionDTO(
+                session.getId(),
+                session.getFileName(),
+                session.getTotalSize(),
+                offset,
+                session.getCreatedAt()
+        );
+    }
+}
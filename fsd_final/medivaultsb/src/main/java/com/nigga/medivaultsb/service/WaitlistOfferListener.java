@@ -0,0 +1,74 @@
+package com.nigga.medivaultsb.service;
+
+import com.nigga.medivaultsb.scheduling.WaitlistHoldTimer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Drives the waitlist from appointment changes: every committed {@link AppointmentSlotFreedEvent}
+ * offers the slot to the next patient in line, and every offer gets a hold timer. An expired
+ * hold frees the slot again, which in turn raises the next event.
+ */
+@Component
+@Slf4j
+public class WaitlistOfferListener {
+
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    @Autowired
+    private WaitlistHoldTimer waitlistHoldTimer;
+
+    // Re-arms the holds of offers that were open when the application last stopped
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        waitlistHoldTimer.start();
+        List<WaitlistService.Offer> offers = waitlistService.getOpenOffers();
+        offers.forEach(offer -> armHold(offer.entryId(), offer.expiresAt()));
+        if (!offers.isEmpty()) {
+            log.info("Re-armed {} waitlist holds", offers.size());
+        }
+    }
+
+    @Async("waitlistExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onSlotFreed(AppointmentSlotFreedEvent event) {
+        offer(event.doctorId(), event.appointmentTime());
+    }
+
+    private void offer(Long doctorId, LocalDateTime time) {
+        Optional<WaitlistService.Offer> offer;
+        try {
+            offer = waitlistService.offerSlot(doctorId, time);
+        } catch (RuntimeException e) {
+            log.warn("Could not offer the slot of doctor {} at {} to the waitlist: {}", doctorId, time, e.getMessage());
+            return;
+        }
+        offer.ifPresent(open -> armHold(open.entryId(), open.expiresAt()));
+    }
+
+    private void armHold(Long entryId, LocalDateTime expiresAt) {
+        waitlistHoldTimer.schedule(entryId, expiresAt, () -> {
+            try {
+                waitlistService.expireOffer(entryId);
+            } catch (RuntimeException e) {
+                // Keep the slot moving: try again shortly rather than leaving it held
+                log.warn("Could not expire waitlist offer {}, retrying: {}", entryId, e.getMessage());
+                armHold(entryId, LocalDateTime.now().plus(RETRY_DELAY));
+            }
+        });
+    }
+}
@@ -0,0 +1,330 @@
+package com.nigga.medivaultsb.service;
+
+import com.nigga.medivaultsb.dto.UserDTO;
+import com.nigga.medivaultsb.dto.WaitlistEntryDTO;
+import com.nigga.medivaultsb.model.Appointment;
+import com.nigga.medivaultsb.model.User;
+import com.nigga.medivaultsb.model.WaitlistEntry;
+import com.nigga.medivaultsb.repository.AppointmentRepository;
+import com.nigga.medivaultsb.repository.UserRepository;
+import com.nigga.medivaultsb.repository.WaitlistEntryRepository;
+import com.nigga.medivaultsb.scheduling.DoctorSlotIndex;
+import com.nigga.medivaultsb.scheduling.WaitlistHoldTimer;
+import com.nigga.medivaultsb.scheduling.WaitlistQueues;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Per-doctor, per-day waitlists. When a future slot frees up it is offered to the next waiting
+ * patient by booking it as a HELD appointment in their name; the patient accepts within the
+ * hold period to turn it into a regular PENDING request, or the hold expires and the slot moves
+ * on to the next patient in line.
+ */
+@Service
+public class WaitlistService {
+
+    public static final int MAX_URGENCY = 2;
+    private static final Set<String> OPEN_STATUSES = Set.of("WAITING", "OFFERED");
+
+    @Autowired
+    private WaitlistEntryRepository waitlistEntryRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WaitlistQueues waitlistQueues;
+
+    @Autowired
+    private WaitlistHoldTimer waitlistHoldTimer;
+
+    @Autowired
+    private DoctorSlotIndex doctorSlotIndex;
+
+    @Autowired
+    private PatientRosterCache patientRosterCache;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private AppointmentStatsService appointmentStatsService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${medivault.waitlist.hold:30m}")
+    private Duration hold;
+
+    /**
+     * A slot offered to a waiting patient, held for them until {@code expiresAt}.
+     */
+    public record Offer(Long entryId, LocalDateTime expiresAt) {
+    }
+
+    @Transactional
+    public WaitlistEntryDTO joinWaitlist(Long doctorId, LocalDate date, int urgency) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth.getName();
+        User patient = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("Patient not found"));
+        
+        User doctor = userRepository.findById(doctorId)
+                .orElseThrow(() -> new RuntimeException("Doctor not found"));
+        if (!"DOCTOR".equals(doctor.getRole())) {
+            throw new RuntimeException("Selected user is not a doctor");
+        }
+        if (date.isBefore(LocalDate.now())) {
+            throw new RuntimeException("Cannot join the waitlist for a past day");
+        }
+        if (urgency < 0 || urgency > MAX_URGENCY) {
+            throw new RuntimeException("Urgency must be between 0 and " + MAX_URGENCY);
+        }
+        if (waitlistEntryRepository.existsByPatientAndDoctorAndRequestedDateAndStatusIn(
+                patient, doctor, date, OPEN_STATUSES)) {
+            throw new RuntimeException("Already on this doctor's waitlist for that day");
+        }
+        
+        WaitlistEntry entry = new WaitlistEntry();
+        entry.setPatient(patient);
+        entry.setDoctor(doctor);
+        entry.setRequestedDate(date);
+        entry.setUrgency(urgency);
+        entry.setStatus("WAITING");
+        
+        WaitlistEntry savedEntry = waitlistEntryRepository.save(entry);
+        waitlistQueues.addAfterCommit(doctor.getId(), date, WaitlistQueues.QueuedEntry.of(savedEntry));
+        return convertToDTO(savedEntry);
+    }
+
+    public List<WaitlistEntryDTO> getMyWaitlistEntries() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth.getName();
+        User patient = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("Patient not found"));
+        
+        return waitlistEntryRepository.findByPatientOrderByCreatedAtDesc(patient)
+                .stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Takes an open offer: the held appointment becomes a PENDING request for the doctor.
+     */
+    @Transactional
+    public WaitlistEntryDTO acceptOffer(Long entryId) {
+        WaitlistEntry entry = findOwnedEntryForUpdate(entryId);
+        if (!"OFFERED".equals(entry.getStatus())) {
+            throw new RuntimeException("There is no open offer for this waitlist entry");
+        }
+        if (entry.getOfferExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new RuntimeException("This offer has expired");
+        }
+        
+        Appointment appointment = entry.getAppointment();
+        if (appointment == null || !"HELD".equals(appointment.getStatus())) {
+            throw new RuntimeException("The offered slot is no longer available");
+        }
+        // Both statuses occupy the slot, so the slot index needs no change
+        appointmentStatsService.recordTransition(appointment.getDoctor().getId(), appointment.getAppointmentTime(),
+                appointment.getCreatedAt(), appointment.getStatus(), "PENDING");
+        appointment.setStatus("PENDING");
+        appointmentRepository.save(appointment);
+        
+        entry.setStatus("BOOKED");
+        waitlistHoldTimer.cancelAfterCommit(entry.getId());
+        return convertToDTO(waitlistEntryRepository.save(entry));
+    }
+
+    /**
+     * Leaves the waitlist. An open offer is declined, which passes the slot to the next patient.
+     */
+    @Transactional
+    public void cancelEntry(Long entryId) {
+        WaitlistEntry entry = findOwnedEntryForUpdate(entryId);
+        if ("WAITING".equals(entry.getStatus())) {
+            entry.setStatus("CANCELLED");
+            waitlistEntryRepository.save(entry);
+            waitlistQueues.removeAfterCommit(entry.getDoctor().getId(), entry.getRequestedDate(),
+                    WaitlistQueues.QueuedEntry.of(entry));
+        } else if ("OFFERED".equals(entry.getStatus())) {
+            closeOffer(entry, "DECLINED");
+            waitlistHoldTimer.cancelAfterCommit(entry.getId());
+        } else {
+            throw new RuntimeException("This waitlist entry is already closed");
+        }
+    }
+
+    /**
+     * Offers the doctor's slot at {@code time} to the next waiting patient for that day, if any.
+     * Entries that cannot take the slot are put back in line.
+     */
+    @Transactional
+    public Optional<Offer> offerSlot(Long doctorId, LocalDateTime time) {
+        if (!time.isAfter(LocalDateTime.now())) {
+            return Optional.empty();
+        }
+        LocalDate date = time.toLocalDate();
+        
+        while (true) {
+            Optional<WaitlistQueues.QueuedEntry> next = waitlistQueues.poll(doctorId, date);
+            if (next.isEmpty()) {
+                return Optional.empty();
+            }
+            WaitlistQueues.QueuedEntry queued = next.get();
+            Optional<WaitlistEntry> found = waitlistEntryRepository.findByIdForUpdate(queued.id());
+            if (found.isEmpty() || !"WAITING".equals(found.get().getStatus())) {
+                // Closed in the meantime, possibly through another instance
+                continue;
+            }
+            WaitlistEntry entry = found.get();
+            
+            try {
+                doctorSlotIndex.reserve(doctorId, time);
+            } catch (RuntimeException e) {
+                // Someone booked the slot before the waitlist got to it
+                waitlistQueues.add(doctorId, date, queued);
+                return Optional.empty();
+            }
+            requeueOnRollback(doctorId, date, queued);
+            
+            Appointment appointment = new Appointment();
+            appointment.setPatient(entry.getPatient());
+            appointment.setDoctor(entry.getDoctor());
+            appointment.setAppointmentTime(time);
+            appointment.setStatus("HELD");
+            Appointment savedAppointment = appointmentRepository.save(appointment);
+            
+            LocalDateTime expiresAt = LocalDateTime.now().plus(hold);
+            entry.setStatus("OFFERED");
+            entry.setAppointment(savedAppointment);
+            entry.setOfferedTime(time);
+            entry.setOfferExpiresAt(expiresAt);
+            waitlistEntryRepository.save(entry);
+            patientRosterCache.invalidateAfterCommit(doctorId);
+            
+            User patient = entry.getPatient();
+            emailService.queueEmail(patient.getEmail(), "Appointment Slot Available",
+                    "Dear " + patient.getName() + ",\n\nA slot with Dr. " + entry.getDoctor().getName() + " on " + time
+                            + " has opened up and is held for you until " + expiresAt
+                            + ". Accept it from your waitlist to request the appointment.");
+            return Optional.of(new Offer(entry.getId(), expiresAt));
+        }
+    }
+
+    /**
+     * Closes an offer whose hold ran out and frees its slot for the next patient. Does nothing
+     * if the offer was accepted or declined in the meantime.
+     */
+    @Transactional
+    public void expireOffer(Long entryId) {
+        waitlistEntryRepository.findByIdForUpdate(entryId)
+                .filter(entry -> "OFFERED".equals(entry.getStatus()))
+                .ifPresent(entry -> closeOffer(entry, "EXPIRED"));
+    }
+
+    public List<Offer> getOpenOffers() {
+        return waitlistEntryRepository.findByStatus("OFFERED")
+                .stream()
+                .map(entry -> new Offer(entry.getId(), entry.getOfferExpiresAt()))
+                .collect(Collectors.toList());
+    }
+
+    private void closeOffer(WaitlistEntry entry, String status) {
+        Appointment appointment = entry.getAppointment();
+        if (appointment != null && !"HELD".equals(appointment.getStatus())) {
+            // The doctor acted on the held appointment already, which then stays as it is
+            entry.setStatus(DoctorSlotIndex.isActive(appointment.getStatus()) ? "BOOKED" : status);
+            waitlistEntryRepository.save(entry);
+            return;
+        }
+        
+        entry.setStatus(status);
+        entry.setAppointment(null);
+        waitlistEntryRepository.save(entry);
+        if (appointment != null) {
+            Long doctorId = appointment.getDoctor().getId();
+            appointmentRepository.delete(appointment);
+            doctorSlotIndex.releaseAfterCommit(doctorId, appointment.getAppointmentTime());
+            patientRosterCache.invalidateAfterCommit(doctorId);
+            eventPublisher.publishEvent(new AppointmentSlotFreedEvent(doctorId, appointment.getAppointmentTime()));
+        }
+    }
+
+    private void requeueOnRollback(Long doctorId, LocalDate date, WaitlistQueues.QueuedEntry queued) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    waitlistQueues.add(doctorId, date, queued);
+                }
+            }
+        });
+    }
+
+    private WaitlistEntry findOwnedEntryForUpdate(Long entryId) {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        String email = auth.getName();
+        User patient = userRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("Patient not found"));
+        
+        WaitlistEntry entry = waitlistEntryRepository.findByIdForUpdate(entryId)
+                .orElseThrow(() -> new RuntimeException("Waitlist entry not found"));
+        if (!entry.getPatient().getId().equals(patient.getId())) {
+            throw new RuntimeException("Unauthorized access to waitlist entry");
+        }
+        return entry;
+    }
+
+    private WaitlistEntryDTO convertToDTO(WaitlistEntry entry) {
+        return new WaitlistEntryDTO(
+                entry.getId(),
+                convertToUserDTO(entry.getDoctor()),
+                entry.getRequestedDate(),
+                entry.getUrgency(),
+                entry.getStatus(),
+                entry.getAppointment() != null ? entry.getAppointment().getId() : null,
+                entry.getOfferedTime(),
+                entry.getOfferExpiresAt(),
+                entry.getCreatedAt()
+        );
+    }
+
+    private UserDTO convertToUserDTO(User user) {
+        return new UserDTO(
+                user.getId(),
+                user.getName(),
+                user.getEmail(),
+                user.getPhone(),
+                user.getRole(),
+                user.getGender(),
+                user.getAge(),
+                user.getSpecialty(),
+                user.getLicenseNumber(),
+                user.getYearsOfExperience(),
+                user.getBio(),
+                user.getClinicName(),
+                user.getClinicLocation(),
+                user.getAvailableHours()
+        );
+    }
+}
@@ -0,0 +1,53 @@
+package com.nigga.medivaultsb.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Transform applied to a payload between the upload and {@link RecordStorage}.
+ * Both directions are pull-based streams, so neither side ever holds the whole payload.
+ */
+public enum CompressionCodec {
+
+    NONE {
+        @Override
+        public InputStream encode(InputStream raw, int level) {
+            return raw;
+        }
+
+        @Override
+        public InputStream decode(InputStream stored) {
+            return stored;
+        }
+    },
+
+    DEFLATE {
+        @Override
+        public InputStream encode(InputStream raw, int level) {
+            Deflater deflater = new Deflater(level);
+            return new DeflaterInputStream(raw, deflater) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        // A deflater passed in by the caller is not released by the stream itself
+                        deflater.end();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public InputStream decode(InputStream stored) {
+            return new InflaterInputStream(stored);
+        }
+    };
+
+    public abstract InputStream encode(InputStream raw, int level);
+
+    public abstract InputStream decode(InputStream stored);
+}
@@ -0,0 +1,53 @@
+package com.nigga.medivaultsb.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Picks the codec for a payload from its declared content type. Only types listed in
+ * {@code medivault.storage.compression.types} are deflated; everything else, including formats
+ * that are already compressed such as JPEG and PNG, is stored as uploaded.
+ */
+@Component
+public class CompressionPolicy {
+
+    private final List<MediaType> compressibleTypes;
+    private final int level;
+
+    public CompressionPolicy(@Value("${medivault.storage.compression.types}") String[] compressibleTypes,
+                             @Value("${medivault.storage.compression.level:1}") int level) {
+        this.compressibleTypes = Arrays.stream(compressibleTypes)
+                .map(String::trim)
+                .filter(type -> !type.isEmpty())
+                .map(MediaType::parseMediaType)
+                .toList();
+        this.level = level;
+    }
+
+    public CompressionCodec codecFor(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return CompressionCodec.NONE;
+        }
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return CompressionCodec.NONE;
+        }
+        for (MediaType compressible : compressibleTypes) {
+            if (compressible.includes(mediaType)) {
+                return CompressionCodec.DEFLATE;
+            }
+        }
+        return CompressionCodec.NONE;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+}
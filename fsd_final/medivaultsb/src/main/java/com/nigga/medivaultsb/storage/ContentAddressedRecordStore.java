@@ -0,0 +1,224 @@
+package com.nigga.medivaultsb.storage;
+
+import com.nigga.medivaultsb.repository.RecordBlobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Deduplicates payloads by SHA-256 on top of {@link RecordStorage}. Each distinct payload is
+ * written once under its hash, compressed when {@link CompressionPolicy} says so;
+ * {@code record_blobs.ref_count} tracks how many records share it.
+ *
+ * <p>Storing and deleting a payload take a transaction-scoped advisory lock on its hash, so a
+ * payload deleted after commit is never removed from under an upload that re-created it.
+ */
+@Service
+@Slf4j
+public class ContentAddressedRecordStore {
+
+    @Autowired
+    private RecordStorage recordStorage;
+
+    @Autowired
+    private RecordBlobRepository recordBlobRepository;
+
+    @Autowired
+    private CompressionPolicy compressionPolicy;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Adds a reference to the given payload, writing it to storage only if its content is new.
+     * The source is read twice: once to hash it and, for new content, once to store it. Both
+     * reads come from the local spool file of the upload, never from the client connection.
+     *
+     * @return the content hash, which is the storage key, and the uncompressed payload length
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public StoredObject put(InputStreamSource source, String contentType) throws IOException {
+        StoredObject digest = digest(source);
+        lockContent(digest.key());
+
+        if (recordBlobRepository.incrementRefCount(digest.key()) > 0) {
+            // Identical content is already stored; the new record only needs a reference
+            return digest;
+        }
+
+        CompressionCodec codec = compressionPolicy.codecFor(contentType);
+        if (recordBlobRepository.insertIfAbsent(digest.key(), digest.size(), codec.name()) == 0) {
+            // A concurrent upload of the same content claimed the hash first and has committed
+            recordBlobRepository.incrementRefCount(digest.key());
+            return digest;
+        }
+
+        long storedSize;
+        CountingInputStream counted;
+        try (InputStream inputStream = source.getInputStream()) {
+            counted = new CountingInputStream(inputStream);
+            try (InputStream encoded = codec.encode(counted, compressionPolicy.getLevel())) {
+                storedSize = recordStorage.store(digest.key(), encoded);
+            }
+        }
+        if (counted.getCount() != digest.size()) {
+            throw new IOException("Upload changed while it was being stored");
+        }
+        recordBlobRepository.updateStoredSize(digest.key(), storedSize);
+        return digest;
+    }
+
+    /**
+     * Drops one reference to the payload and deletes it once nothing points at it anymore. On a
+     * backend outside the database the payload is only deleted after the transaction commits, so
+     * a rollback never leaves a record without its file.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(String contentHash) throws IOException {
+        recordBlobRepository.decrementRefCount(contentHash);
+        if (recordBlobRepository.deleteIfUnreferenced(contentHash) > 0) {
+            if (recordStorage.isTransactional()) {
+                recordStorage.delete(contentHash);
+            } else {
+                deleteAfterCommit(contentHash);
+            }
+        }
+    }
+
+    /**
+     * Opens the original, decompressed payload. The caller must close the stream.
+     */
+    public InputStream open(RecordFile file) throws IOException {
+        return file.codec().decode(recordStorage.open(file.storageKey()));
+    }
+
+    /**
+     * Copies a range of the original payload. Uncompressed payloads are read from the backend at
+     * the requested offset; compressed ones are inflated from the start and the prefix discarded.
+     */
+    public void transferTo(RecordFile file, long offset, long length, OutputStream outputStream) throws IOException {
+        if (file.codec() == CompressionCodec.NONE) {
+            recordStorage.transferTo(file.storageKey(), offset, length, outputStream);
+            return;
+        }
+        try (InputStream inputStream = open(file)) {
+            StreamUtils.copyRange(inputStream, outputStream, offset, offset + length - 1);
+        }
+    }
+
+    /**
+     * Returns the local file only when its bytes are exactly what the client should receive.
+     */
+    public Optional<Path> localPath(RecordFile file) {
+        if (file.codec() != CompressionCodec.NONE) {
+            return Optional.empty();
+        }
+        return recordStorage.localPath(file.storageKey());
+    }
+
+    private void deleteAfterCommit(String contentHash) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+                transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        // Waits for any upload of the same content that started meanwhile; if it
+                        // re-created the blob, the payload belongs to it now
+                        lockContent(contentHash);
+                        if (!recordBlobRepository.existsById(contentHash)) {
+                            try {
+                                recordStorage.delete(contentHash);
+                            } catch (IOException e) {
+                                log.warn("Could not delete payload {}: {}", contentHash, e.getMessage());
+                            }
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    log.warn("Could not delete payload {}: {}", contentHash, e.getMessage());
+                }
+            }
+        });
+    }
+
+    // Held until the current transaction ends
+    private void lockContent(String contentHash) {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtext(?))", rs -> null, contentHash);
+    }
+
+    private StoredObject digest(InputStreamSource source) throws IOException {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+
+        long size = 0;
+        byte[] buffer = new byte[8192];
+        try (InputStream inputStream = source.getInputStream()) {
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                sha256.update(buffer, 0, bytesRead);
+                size += bytesRead;
+            }
+        }
+
+        return new StoredObject(HexFormat.of().formatHex(sha256.digest()), size);
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int bytesRead = super.read(b, off, len);
+            if (bytesRead > 0) {
+                count += bytesRead;
+            }
+            return bytesRead;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.nigga.medivaultsb.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores payloads in Postgres as a sequence of fixed-size bytea rows in {@code record_chunks}.
+ * At most one chunk per stream is held on the heap, on both the write and the read path.
+ */
+@Component
+@ConditionalOnProperty(name = "medivault.storage.backend", havingValue = "database", matchIfMissing = true)
+public class JdbcChunkedRecordStorage implements RecordStorage {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${medivault.storage.chunk-size:262144}")
+    private int chunkSize;
+
+    @Override
+    public long store(String key, InputStream inputStream) throws IOException {
+        delete(key);
+        byte[] buffer = new byte[chunkSize];
+        long size = 0;
+        int chunkIndex = 0;
+        int bytesRead;
+
+        while ((bytesRead = inputStream.readNBytes(buffer, 0, chunkSize)) > 0) {
+            byte[] chunk = bytesRead == chunkSize ? buffer : Arrays.copyOf(buffer, bytesRead);
+            jdbcTemplate.update(
+                    "INSERT INTO record_chunks (storage_key, chunk_index, data) VALUES (?, ?, ?)",
+                    key, chunkIndex++, chunk);
+            size += bytesRead;
+        }
+
+        return size;
+    }
+
+    @Override
+    public InputStream open(String key) {
+        return new ChunkInputStream(key, 0, 0);
+    }
+
+    @Override
+    public InputStream open(String key, long offset) {
+        if (offset == 0) {
+            return open(key);
+        }
+        // Chunks are only as large as the chunk size in effect when the payload was written
+        Integer storedChunkSize = jdbcTemplate.query(
+                "SELECT length(data) FROM record_chunks WHERE storage_key = ? AND chunk_index = 0",
+                rs -> rs.next() ? rs.getInt(1) : null,
+                key);
+        if (storedChunkSize == null || storedChunkSize == 0) {
+            return InputStream.nullInputStream();
+        }
+        return new ChunkInputStream(key, (int) (offset / storedChunkSize), (int) (offset % storedChunkSize));
+    }
+
+    @Override
+    public void delete(String key) {
+        jdbcTemplate.update("DELETE FROM record_chunks WHERE storage_key = ?", key);
+    }
+
+    @Override
+    public boolean isTransactional() {
+        return true;
+    }
+
+    private byte[] fetchChunk(String key, int chunkIndex) {
+        List<byte[]> rows = jdbcTemplate.query(
+                "SELECT data FROM record_chunks WHERE storage_key = ? AND chunk_index = ?",
+                (rs, rowNum) -> rs.getBytes(1),
+                key, chunkIndex);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * Reads chunks one query at a time, only when the previous one has been consumed.
+     */
+    private class ChunkInputStream extends InputStream {
+
+        private final String key;
+        private int nextChunkIndex;
+        private int pendingSkip;
+        private byte[] current = new byte[0];
+        private int position;
+        private boolean exhausted;
+
+        ChunkInputStream(String key, int firstChunkIndex, int skipInFirstChunk) {
+            this.key = key;
+            this.nextChunkIndex = firstChunkIndex;
+            this.pendingSkip = skipInFirstChunk;
+        }
+
+        @Override
+        public int read() {
+            if (!fill()) {
+                return -1;
+            }
+            return current[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(len, current.length - position);
+            System.arraycopy(current, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return exhausted ? 0 : current.length - position;
+        }
+
+        private boolean fill() {
+            while (!exhausted && position >= current.length) {
+                byte[] next = fetchChunk(key, nextChunkIndex++);
+                if (next == null) {
+                    exhausted = true;
+                } else {
+                    current = next;
+                    position = Math.min(pendingSkip, next.length);
+                    pendingSkip = 0;
+                }
+            }
+            return !exhausted;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.nigga.medivaultsb.storage;
+
+/**
+ * Metadata needed to serve a stored payload over HTTP, without the payload itself.
+ */
+public record RecordFile(String storageKey, String fileName, String contentType, long size,
+                         CompressionCodec codec) {
+}
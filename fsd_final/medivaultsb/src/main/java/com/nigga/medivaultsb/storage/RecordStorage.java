@@ -0,0 +1,68 @@
+package com.nigga.medivaultsb.storage;
+
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Backend that holds the binary payload of medical records.
+ * Implementations must stream; callers never hand over or receive whole files as byte arrays.
+ */
+public interface RecordStorage {
+
+    /**
+     * Streams the given input into the store under the given key, replacing any previous payload.
+     *
+     * @param key the key chosen by the caller, at least two characters long
+     * @param inputStream the payload, read until EOF but not closed
+     * @return the number of bytes stored
+     * @throws IOException if the input cannot be read or the store cannot be written
+     */
+    long store(String key, InputStream inputStream) throws IOException;
+
+    /**
+     * Opens the payload stored under the given key. The caller must close the stream.
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Opens the payload positioned at the given byte offset. Backends should override this
+     * when they can seek without reading the skipped bytes.
+     */
+    default InputStream open(String key, long offset) throws IOException {
+        InputStream inputStream = open(key);
+        inputStream.skipNBytes(offset);
+        return inputStream;
+    }
+
+    /**
+     * Copies {@code length} bytes starting at {@code offset} to the given output stream.
+     */
+    default void transferTo(String key, long offset, long length, OutputStream outputStream) throws IOException {
+        try (InputStream inputStream = open(key, offset)) {
+            StreamUtils.copyRange(inputStream, outputStream, 0, length - 1);
+        }
+    }
+
+    /**
+     * Returns the file holding the payload when it sits on local disk, so that it can be sent
+     * without passing through the JVM heap.
+     */
+    default Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    void delete(String key) throws IOException;
+
+    /**
+     * Whether writes join the caller's database transaction. Deletes from a backend that does
+     * not are only issued once that transaction has committed.
+     */
+    default boolean isTransactional() {
+        return false;
+    }
+}
@@ -0,0 +1,4 @@
+package com.nigga.medivaultsb.storage;
+
+public record StoredObject(String key, long size) {
+}
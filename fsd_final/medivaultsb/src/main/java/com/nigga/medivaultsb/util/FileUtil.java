@@ -1,36 +0,0 @@
-package com.nigga.medivaultsb.util;
-
-import org.springframework.web.multipart.MultipartFile;
-
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-
-public class FileUtil {
-
-    /**
-     * Converts a MultipartFile to a byte array safely
-     * 
-     * @param file The MultipartFile to convert
-     * @return byte array of the file contents
-     * @throws IOException if the file cannot be read
-     */
-    public static byte[] convertToByteArray(MultipartFile file) throws IOException {
-        if (file == null || file.isEmpty()) {
-            return new byte[0];
-        }
-        
-        try (InputStream inputStream = file.getInputStream();
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            
-            byte[] buffer = new byte[1024];
-            int bytesRead;
-            
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
-            }
-            
-            return outputStream.toByteArray();
-        }
-    }
-} 
\ No newline at end of file
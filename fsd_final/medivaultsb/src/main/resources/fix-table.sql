@@ -1,5 +1,9 @@
--- Drop the table if it exists
+-- Drop the tables if they exist
+DROP TABLE IF EXISTS medical_record_search;
 DROP TABLE IF EXISTS medical_records CASCADE;
+DROP TABLE IF EXISTS record_chunks;
+DROP TABLE IF EXISTS record_renditions;
+DROP TABLE IF EXISTS record_blobs;
 
 -- Create the table with proper column types
 CREATE TABLE medical_records (
@@ -11,7 +15,218 @@ CREATE TABLE medical_records (
     description VARCHAR(1000),
     file_name VARCHAR(255) NOT NULL,
     content_type VARCHAR(100) NOT NULL,
-    file_data BYTEA NOT NULL,
+    storage_key VARCHAR(64) NOT NULL,
+    file_size BIGINT NOT NULL,
     uploaded_at TIMESTAMP NOT NULL,
     CONSTRAINT fk_patient FOREIGN KEY (patient_id) REFERENCES users(id)
-); 
\ No newline at end of file
+); 
+
+-- Weighted full-text document per record, maintained asynchronously after upload
+CREATE TABLE medical_record_search (
+    record_id BIGINT PRIMARY KEY,
+    patient_id BIGINT NOT NULL,
+    document TSVECTOR NOT NULL,
+    indexed_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_search_record FOREIGN KEY (record_id) REFERENCES medical_records(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_medical_record_search_document ON medical_record_search USING GIN (document);
+CREATE INDEX idx_medical_record_search_patient ON medical_record_search (patient_id);
+
+-- One row per distinct payload; storage_key on medical_records is the content hash
+CREATE TABLE record_blobs (
+    content_hash VARCHAR(64) PRIMARY KEY,
+    size BIGINT NOT NULL,
+    codec VARCHAR(20) NOT NULL,
+    stored_size BIGINT,
+    ref_count INTEGER NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+-- Thumbnails derived from a payload, removed together with it
+CREATE TABLE record_renditions (
+    storage_key VARCHAR(64) PRIMARY KEY,
+    content_type VARCHAR(100) NOT NULL,
+    data BYTEA NOT NULL,
+    width INTEGER NOT NULL,
+    height INTEGER NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_rendition_blob FOREIGN KEY (storage_key) REFERENCES record_blobs(content_hash) ON DELETE CASCADE
+);
+
+-- File payloads, split into fixed-size chunks keyed by record_blobs.content_hash
+CREATE TABLE record_chunks (
+    storage_key VARCHAR(64) NOT NULL,
+    chunk_index INTEGER NOT NULL,
+    data BYTEA NOT NULL,
+    PRIMARY KEY (storage_key, chunk_index)
+);
+
+-- Resumable uploads in progress; chunk data lives in the staging directory
+CREATE TABLE IF NOT EXISTS upload_sessions (
+    id VARCHAR(36) PRIMARY KEY,
+    patient_id BIGINT NOT NULL,
+    title VARCHAR(255),
+    doctor_name VARCHAR(255),
+    record_type VARCHAR(100),
+    description VARCHAR(1000),
+    file_name VARCHAR(255) NOT NULL,
+    content_type VARCHAR(100) NOT NULL,
+    total_size BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_upload_patient FOREIGN KEY (patient_id) REFERENCES users(id)
+);
+
+-- Keyset pagination: each list is read by owner in (sort key, id) order
+CREATE INDEX IF NOT EXISTS idx_medical_records_patient_uploaded ON medical_records (patient_id, uploaded_at, id);
+CREATE INDEX IF NOT EXISTS idx_appointments_patient_time ON appointments (patient_id, appointment_time, id);
+CREATE INDEX IF NOT EXISTS idx_appointments_doctor_time ON appointments (doctor_id, appointment_time, id);
+CREATE INDEX IF NOT EXISTS idx_prescriptions_patient_prescribed ON prescriptions (patient_id, prescribed_at, id);
+CREATE INDEX IF NOT EXISTS idx_prescriptions_doctor_prescribed ON prescriptions (doctor_id, prescribed_at, id);
+
+-- A doctor cannot hold two active appointments starting at the same time, even across instances
+DROP INDEX IF EXISTS uq_appointments_doctor_active_slot;
+CREATE UNIQUE INDEX IF NOT EXISTS uq_appointments_doctor_open_slot ON appointments (doctor_id, appointment_time)
+    WHERE status IN ('HELD', 'PENDING', 'APPROVED');
+
+-- Emails queued in the same transaction as the change they announce
+CREATE TABLE IF NOT EXISTS email_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    body TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    attempts INTEGER NOT NULL,
+    next_attempt_at TIMESTAMP NOT NULL,
+    claim_token VARCHAR(36),
+    locked_until TIMESTAMP,
+    last_error VARCHAR(1000),
+    created_at TIMESTAMP NOT NULL,
+    sent_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_email_outbox_due ON email_outbox (status, next_attempt_at);
+CREATE INDEX IF NOT EXISTS idx_email_outbox_claim ON email_outbox (claim_token);
+
+-- Reminders and other at-most-once emails carry a deduplication key
+ALTER TABLE email_outbox ADD COLUMN IF NOT EXISTS dedup_key VARCHAR(150);
+CREATE UNIQUE INDEX IF NOT EXISTS uq_email_outbox_dedup_key ON email_outbox (dedup_key);
+
+-- Leases that keep a background job to one instance at a time
+CREATE TABLE IF NOT EXISTS job_leases (
+    job_name VARCHAR(100) PRIMARY KEY,
+    owner VARCHAR(36) NOT NULL,
+    locked_until TIMESTAMP NOT NULL
+);
+
+-- Past APPROVED appointments waiting to be marked FINISHED
+CREATE INDEX IF NOT EXISTS idx_appointments_approved_time ON appointments (appointment_time)
+    WHERE status = 'APPROVED';
+
+-- Patient roster: distinct patients per doctor with their latest appointment
+CREATE INDEX IF NOT EXISTS idx_appointments_doctor_patient_time ON appointments (doctor_id, patient_id, appointment_time);
+
+-- Patients waiting for a slot with a doctor on a given day
+CREATE TABLE IF NOT EXISTS waitlist_entries (
+    id BIGSERIAL PRIMARY KEY,
+    patient_id BIGINT NOT NULL,
+    doctor_id BIGINT NOT NULL,
+    requested_date DATE NOT NULL,
+    urgency INTEGER NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    appointment_id BIGINT,
+    offered_time TIMESTAMP,
+    offer_expires_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_waitlist_patient FOREIGN KEY (patient_id) REFERENCES users(id),
+    CONSTRAINT fk_waitlist_doctor FOREIGN KEY (doctor_id) REFERENCES users(id),
+    CONSTRAINT fk_waitlist_appointment FOREIGN KEY (appointment_id) REFERENCES appointments(id) ON DELETE SET NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_waitlist_doctor_day ON waitlist_entries (doctor_id, requested_date, status);
+CREATE INDEX IF NOT EXISTS idx_waitlist_patient ON waitlist_entries (patient_id, created_at);
+CREATE UNIQUE INDEX IF NOT EXISTS uq_waitlist_open_entry ON waitlist_entries (patient_id, doctor_id, requested_date)
+    WHERE status IN ('WAITING', 'OFFERED');
+
+-- Per-doctor, per-day appointment counts, updated with every status change
+CREATE TABLE IF NOT EXISTS appointment_daily_stats (
+    doctor_id BIGINT NOT NULL,
+    day DATE NOT NULL,
+    pending INTEGER NOT NULL,
+    approved INTEGER NOT NULL,
+    rejected INTEGER NOT NULL,
+    finished INTEGER NOT NULL,
+    lead_minutes_sum BIGINT NOT NULL,
+    lead_under_1d INTEGER NOT NULL,
+    lead_1d_to_7d INTEGER NOT NULL,
+    lead_over_7d INTEGER NOT NULL,
+    PRIMARY KEY (doctor_id, day)
+);
+
+-- Chat conversations keyed by their participants in ascending id order, read by message id
+ALTER TABLE chat_messages ADD COLUMN IF NOT EXISTS user_low_id BIGINT;
+ALTER TABLE chat_messages ADD COLUMN IF NOT EXISTS user_high_id BIGINT;
+UPDATE chat_messages SET user_low_id = LEAST(sender_id, receiver_id), user_high_id = GREATEST(sender_id, receiver_id)
+    WHERE user_low_id IS NULL;
+ALTER TABLE chat_messages ALTER COLUMN user_low_id SET NOT NULL;
+ALTER TABLE chat_messages ALTER COLUMN user_high_id SET NOT NULL;
+DROP INDEX IF EXISTS idx_chat_messages_pair_timestamp;
+CREATE INDEX IF NOT EXISTS idx_chat_messages_conversation_id ON chat_messages (user_low_id, user_high_id, id);
+
+-- Per-participant read position in a conversation: the last message read from the partner
+CREATE TABLE IF NOT EXISTS chat_read_watermarks (
+    user_id BIGINT NOT NULL,
+    partner_id BIGINT NOT NULL,
+    last_read_id BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (user_id, partner_id)
+);
+
+-- Carry over the per-message flags: everything before the first unread message has been read.
+-- Runs once, while the table is still empty; afterwards watermarks are only moved by the application
+INSERT INTO chat_read_watermarks (user_id, partner_id, last_read_id, updated_at)
+SELECT receiver_id, sender_id, COALESCE(MIN(id) FILTER (WHERE NOT is_read) - 1, MAX(id)), now()
+FROM chat_messages
+WHERE NOT EXISTS (SELECT 1 FROM chat_read_watermarks)
+GROUP BY receiver_id, sender_id
+ON CONFLICT (user_id, partner_id) DO NOTHING;
+
+-- is_read is no longer written; new rows take the default
+ALTER TABLE chat_messages ALTER COLUMN is_read SET DEFAULT false;
+CREATE INDEX IF NOT EXISTS idx_chat_messages_receiver_sender_id ON chat_messages (receiver_id, sender_id, id);
+
+-- Each user's conversations with the latest message and their unread count, read as the inbox
+CREATE TABLE IF NOT EXISTS chat_conversations (
+    id BIGSERIAL PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    partner_id BIGINT NOT NULL,
+    last_message_id BIGINT NOT NULL,
+    last_sender_id BIGINT NOT NULL,
+    last_message_preview VARCHAR(200) NOT NULL,
+    last_message_at TIMESTAMP NOT NULL,
+    unread_count INTEGER NOT NULL,
+    CONSTRAINT fk_conversation_user FOREIGN KEY (user_id) REFERENCES users(id),
+    CONSTRAINT fk_conversation_partner FOREIGN KEY (partner_id) REFERENCES users(id)
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_chat_conversations_user_partner ON chat_conversations (user_id, partner_id);
+CREATE INDEX IF NOT EXISTS idx_chat_conversations_user_recent ON chat_conversations (user_id, last_message_at, id);
+
+-- Build rows for conversations that predate the table from their latest message and read watermark.
+-- Runs once, while the table is still empty; afterwards every send maintains the rows
+INSERT INTO chat_conversations (user_id, partner_id, last_message_id, last_sender_id, last_message_preview,
+                                last_message_at, unread_count)
+SELECT c.user_id, c.partner_id, c.id, c.sender_id, LEFT(c.message, 200), c.timestamp,
+       (SELECT COUNT(*) FROM chat_messages u
+        WHERE u.receiver_id = c.user_id AND u.sender_id = c.partner_id
+          AND u.id > COALESCE((SELECT w.last_read_id FROM chat_read_watermarks w
+                               WHERE w.user_id = c.user_id AND w.partner_id = c.partner_id), 0))
+FROM (
+    SELECT DISTINCT ON (p.user_id, p.partner_id) p.user_id, p.partner_id, m.id, m.sender_id, m.message, m.timestamp
+    FROM chat_messages m
+    CROSS JOIN LATERAL (VALUES (m.sender_id, m.receiver_id), (m.receiver_id, m.sender_id)) AS p(user_id, partner_id)
+    WHERE NOT EXISTS (SELECT 1 FROM chat_conversations)
+    ORDER BY p.user_id, p.partner_id, m.id DESC
+) c
+ON CONFLICT (user_id, partner_id) DO NOTHING;
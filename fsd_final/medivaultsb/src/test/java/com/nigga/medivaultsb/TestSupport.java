@@ -0,0 +1,57 @@
+package com.nigga.medivaultsb;
+
+import com.nigga.medivaultsb.model.User;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Fixtures shared by the unit tests that run without a database. Those tests stand in for a
+ * transaction by calling {@link TransactionSynchronizationManager#initSynchronization()} before
+ * each test, then end it with {@link #commit()} or {@link #rollBack()}.
+ */
+public final class TestSupport {
+
+    // On the hour tomorrow, so it neither lies in the past nor depends on the time the tests run
+    public static final LocalDateTime SLOT = LocalDateTime.now().plusDays(1).withHour(10).withMinute(0).withSecond(0).withNano(0);
+
+    private TestSupport() {
+    }
+
+    public static User user(Long id, String role) {
+        User user = new User();
+        user.setId(id);
+        user.setName(role.toLowerCase() + " " + id);
+        user.setEmail(role.toLowerCase() + id + "@example.test");
+        user.setRole(role);
+        return user;
+    }
+
+    /**
+     * Runs the callbacks registered so far as a committed transaction would, and starts the next
+     * one, so callbacks that register further work land in a fresh transaction.
+     */
+    public static void commit() {
+        List<TransactionSynchronization> synchronizations = endTransaction();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(synchronization ->
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    }
+
+    /**
+     * Runs the callbacks registered so far as a rolled-back transaction would, and starts the next one.
+     */
+    public static void rollBack() {
+        endTransaction().forEach(synchronization ->
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+    }
+
+    private static List<TransactionSynchronization> endTransaction() {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        return synchronizations;
+    }
+}
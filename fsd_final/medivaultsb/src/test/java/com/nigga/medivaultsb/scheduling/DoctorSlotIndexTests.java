@@ -0,0 +1,145 @@
+package com.nigga.medivaultsb.scheduling;
+
+import com.nigga.medivaultsb.repository.AppointmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static com.nigga.medivaultsb.TestSupport.SLOT;
+import static com.nigga.medivaultsb.TestSupport.commit;
+import static com.nigga.medivaultsb.TestSupport.rollBack;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DoctorSlotIndexTests {
+
+    private static final Long DOCTOR_ID = 10L;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    private DoctorSlotIndex doctorSlotIndex;
+
+    @BeforeEach
+    void setUp() {
+        doctorSlotIndex = new DoctorSlotIndex(Duration.ofMinutes(30), 4);
+        ReflectionTestUtils.setField(doctorSlotIndex, "appointmentRepository", appointmentRepository);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void onlyPendingApprovedAndHeldOccupyTheSlot() {
+        assertTrue(DoctorSlotIndex.isActive("PENDING"));
+        assertTrue(DoctorSlotIndex.isActive("APPROVED"));
+        assertTrue(DoctorSlotIndex.isActive("HELD"));
+        assertFalse(DoctorSlotIndex.isActive("REJECTED"));
+        assertFalse(DoctorSlotIndex.isActive("FINISHED"));
+        assertFalse(DoctorSlotIndex.isActive(null));
+    }
+
+    @Test
+    void loadsBookedSlotsFromTheDatabaseOnce() {
+        when(appointmentRepository.findActiveAppointmentTimes(eq(DOCTOR_ID), eq(DoctorSlotIndex.ACTIVE_STATUSES), any()))
+                .thenReturn(List.of(SLOT));
+
+        assertTrue(doctorSlotIndex.freeAmong(DOCTOR_ID, List.of(SLOT)).isEmpty());
+        assertThrows(RuntimeException.class, () -> doctorSlotIndex.reserve(DOCTOR_ID, SLOT));
+
+        verify(appointmentRepository, times(1)).findActiveAppointmentTimes(eq(DOCTOR_ID), any(), any());
+    }
+
+    @Test
+    void reservedSlotBlocksOverlappingBookingsButNotAdjacentOnes() {
+        doctorSlotIndex.reserve(DOCTOR_ID, SLOT);
+        commit();
+
+        assertThrows(RuntimeException.class, () -> doctorSlotIndex.reserve(DOCTOR_ID, SLOT));
+        assertThrows(RuntimeException.class, () -> doctorSlotIndex.reserve(DOCTOR_ID, SLOT.plusMinutes(15)));
+        assertThrows(RuntimeException.class, () -> doctorSlotIndex.reserve(DOCTOR_ID, SLOT.minusMinutes(15)));
+        assertEquals(List.of(SLOT.minusMinutes(30), SLOT.plusMinutes(30)),
+                doctorSlotIndex.freeAmong(DOCTOR_ID, List.of(SLOT.minusMinutes(30), SLOT, SLOT.plusMinutes(30))));
+    }
+
+    @Test
+    void slotsOfOtherDoctorsAreIndependent() {
+        doctorSlotIndex.reserve(DOCTOR_ID, SLOT);
+        doctorSlotIndex.reserve(DOCTOR_ID + 1, SLOT);
+        commit();
+
+        assertTrue(doctorSlotIndex.freeAmong(DOCTOR_ID + 1, List.of(SLOT)).isEmpty());
+        assertEquals(List.of(SLOT), doctorSlotIndex.freeAmong(DOCTOR_ID + 2, List.of(SLOT)));
+    }
+
+    @Test
+    void rolledBackReservationFreesTheSlot() {
+        doctorSlotIndex.reserve(DOCTOR_ID, SLOT);
+        rollBack();
+
+        assertEquals(List.of(SLOT), doctorSlotIndex.freeAmong(DOCTOR_ID, List.of(SLOT)));
+    }
+
+    @Test
+    void releaseFreesTheSlotOnlyOnceCommitted() {
+        doctorSlotIndex.reserve(DOCTOR_ID, SLOT);
+        commit();
+
+        doctorSlotIndex.releaseAfterCommit(DOCTOR_ID, SLOT);
+        assertTrue(doctorSlotIndex.freeAmong(DOCTOR_ID, List.of(SLOT)).isEmpty());
+        rollBack();
+        assertTrue(doctorSlotIndex.freeAmong(DOCTOR_ID, List.of(SLOT)).isEmpty());
+
+        doctorSlotIndex.releaseAfterCommit(DOCTOR_ID, SLOT);
+        commit();
+        assertEquals(List.of(SLOT), doctorSlotIndex.freeAmong(DOCTOR_ID, List.of(SLOT)));
+    }
+
+    @Test
+    void duplicateBookingsHoldTheSlotUntilTheLastIsReleased() {
+        // Two active bookings at the same time from before the unique index existed
+        when(appointmentRepository.findActiveAppointmentTimes(eq(DOCTOR_ID), any(), any()))
+                .thenReturn(List.of(SLOT, SLOT));
+        assertTrue(doctorSlotIndex.freeAmong(DOCTOR_ID, List.of(SLOT)).isEmpty());
+
+        doctorSlotIndex.releaseAfterCommit(DOCTOR_ID, SLOT);
+        commit();
+        assertTrue(doctorSlotIndex.freeAmong(DOCTOR_ID, List.of(SLOT)).isEmpty());
+
+        doctorSlotIndex.releaseAfterCommit(DOCTOR_ID, SLOT);
+        commit();
+        assertEquals(List.of(SLOT), doctorSlotIndex.freeAmong(DOCTOR_ID, List.of(SLOT)));
+    }
+
+    @Test
+    void slotsThatHaveEndedNoLongerConflict() {
+        LocalDateTime past = LocalDateTime.now().minusHours(2);
+        when(appointmentRepository.findActiveAppointmentTimes(eq(DOCTOR_ID), any(), any()))
+                .thenReturn(List.of(past));
+
+        doctorSlotIndex.reserve(DOCTOR_ID, SLOT);
+        commit();
+
+        assertEquals(List.of(past), doctorSlotIndex.freeAmong(DOCTOR_ID, List.of(past)));
+    }
+}
@@ -0,0 +1,195 @@
+package com.nigga.medivaultsb.scheduling;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the wheel tick by tick without starting its worker thread; expired tasks run inline.
+ */
+class HashedTimingWheelTests {
+
+    private static final int WHEEL_SIZE = 8;
+
+    private HashedTimingWheel wheel;
+    private List<String> fired;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new HashedTimingWheel("test-wheel", Duration.ofSeconds(1), WHEEL_SIZE, Runnable::run);
+        fired = new ArrayList<>();
+    }
+
+    @Test
+    void firesOnTheTickItIsDue() {
+        wheel.schedule(() -> fired.add("a"), Duration.ofSeconds(3));
+
+        advance(2);
+        assertTrue(fired.isEmpty());
+        assertEquals(1, wheel.size());
+
+        advance(1);
+        assertEquals(List.of("a"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void partialTicksRoundUp() {
+        wheel.schedule(() -> fired.add("a"), Duration.ofMillis(2500));
+
+        advance(2);
+        assertTrue(fired.isEmpty());
+
+        advance(1);
+        assertEquals(List.of("a"), fired);
+    }
+
+    @Test
+    void nonPositiveDelaysFireOnTheNextTick() {
+        wheel.schedule(() -> fired.add("zero"), Duration.ZERO);
+        wheel.schedule(() -> fired.add("past"), Duration.ofSeconds(-30));
+
+        advance(1);
+        assertEquals(List.of("zero", "past"), fired);
+    }
+
+    @Test
+    void firesAfterSeveralRounds() {
+        // 20 ticks on a wheel of 8 buckets: two full rounds, then four more ticks
+        wheel.schedule(() -> fired.add("a"), Duration.ofSeconds(20));
+
+        advance(19);
+        assertTrue(fired.isEmpty());
+
+        advance(1);
+        assertEquals(List.of("a"), fired);
+
+        advance(3 * WHEEL_SIZE);
+        assertEquals(List.of("a"), fired);
+    }
+
+    @Test
+    void delayOfAWholeNumberOfRoundsFiresOnTime() {
+        wheel.schedule(() -> fired.add("a"), Duration.ofSeconds(2 * WHEEL_SIZE));
+
+        advance(2 * WHEEL_SIZE - 1);
+        assertTrue(fired.isEmpty());
+
+        advance(1);
+        assertEquals(List.of("a"), fired);
+    }
+
+    @Test
+    void timeoutsSharingABucketFireInTheirOwnRound() {
+        // Both hash to the same bucket; the second only fires one revolution later
+        wheel.schedule(() -> fired.add("near"), Duration.ofSeconds(2));
+        wheel.schedule(() -> fired.add("far"), Duration.ofSeconds(2 + WHEEL_SIZE));
+
+        advance(2);
+        assertEquals(List.of("near"), fired);
+
+        advance(WHEEL_SIZE - 1);
+        assertEquals(List.of("near"), fired);
+
+        advance(1);
+        assertEquals(List.of("near", "far"), fired);
+    }
+
+    @Test
+    void delaysAreMeasuredFromTheCurrentTick() {
+        advance(5);
+        wheel.schedule(() -> fired.add("a"), Duration.ofSeconds(WHEEL_SIZE + 1));
+
+        advance(WHEEL_SIZE);
+        assertTrue(fired.isEmpty());
+
+        advance(1);
+        assertEquals(List.of("a"), fired);
+    }
+
+    @Test
+    void cancelledTimeoutNeverFires() {
+        HashedTimingWheel.Timeout timeout = wheel.schedule(() -> fired.add("a"), Duration.ofSeconds(10));
+        wheel.schedule(() -> fired.add("b"), Duration.ofSeconds(10));
+
+        advance(4);
+        assertTrue(timeout.cancel());
+        assertEquals(1, wheel.size());
+
+        advance(3 * WHEEL_SIZE);
+        assertEquals(List.of("b"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelReportsWhetherTheTimeoutWasStillPending() {
+        HashedTimingWheel.Timeout fires = wheel.schedule(() -> fired.add("a"), Duration.ofSeconds(1));
+        HashedTimingWheel.Timeout cancelled = wheel.schedule(() -> fired.add("b"), Duration.ofSeconds(5));
+
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+
+        advance(1);
+        assertEquals(List.of("a"), fired);
+        assertFalse(fires.cancel());
+    }
+
+    @Test
+    void reschedulingReplacesTheEarlierTimeout() {
+        HashedTimingWheel.Timeout original = wheel.schedule(() -> fired.add("original"), Duration.ofSeconds(3));
+
+        advance(1);
+        assertTrue(original.cancel());
+        wheel.schedule(() -> fired.add("later"), Duration.ofSeconds(WHEEL_SIZE + 2));
+
+        advance(2);
+        assertTrue(fired.isEmpty());
+
+        advance(WHEEL_SIZE - 1);
+        assertTrue(fired.isEmpty());
+
+        advance(1);
+        assertEquals(List.of("later"), fired);
+    }
+
+    @Test
+    void reschedulingEarlierFiresOnTheNewTick() {
+        HashedTimingWheel.Timeout original = wheel.schedule(() -> fired.add("original"), Duration.ofSeconds(20));
+
+        assertTrue(original.cancel());
+        wheel.schedule(() -> fired.add("sooner"), Duration.ofSeconds(2));
+
+        advance(2);
+        assertEquals(List.of("sooner"), fired);
+
+        advance(20);
+        assertEquals(List.of("sooner"), fired);
+    }
+
+    @Test
+    void executorFailureDoesNotStopTheWheel() {
+        HashedTimingWheel rejecting = new HashedTimingWheel("rejecting-wheel", Duration.ofSeconds(1), WHEEL_SIZE,
+                task -> {
+                    throw new IllegalStateException("queue full");
+                });
+        rejecting.schedule(() -> fired.add("a"), Duration.ofSeconds(1));
+        rejecting.schedule(() -> fired.add("b"), Duration.ofSeconds(1));
+
+        rejecting.tick();
+        assertTrue(fired.isEmpty());
+        assertEquals(0, rejecting.size());
+    }
+
+    private void advance(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            wheel.tick();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.nigga.medivaultsb.scheduling;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.nigga.medivaultsb.TestSupport.commit;
+import static com.nigga.medivaultsb.TestSupport.rollBack;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WaitlistHoldTimerTests {
+
+    private HashedTimingWheel wheel;
+    private WaitlistHoldTimer holdTimer;
+    private List<Long> expired;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new HashedTimingWheel("test-hold-wheel", Duration.ofSeconds(1), 8, Runnable::run);
+        holdTimer = new WaitlistHoldTimer(wheel);
+        expired = new ArrayList<>();
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void holdExpiresWhenItRunsOut() {
+        holdTimer.schedule(1L, LocalDateTime.now().plusSeconds(20), () -> expired.add(1L));
+
+        advance(19);
+        assertTrue(expired.isEmpty());
+
+        advance(1);
+        assertEquals(List.of(1L), expired);
+    }
+
+    @Test
+    void holdThatRanOutWhileDownExpiresOnTheNextTick() {
+        holdTimer.schedule(1L, LocalDateTime.now().minusMinutes(5), () -> expired.add(1L));
+
+        advance(1);
+        assertEquals(List.of(1L), expired);
+    }
+
+    @Test
+    void reschedulingAnEntryReplacesItsTimer() {
+        holdTimer.schedule(1L, LocalDateTime.now().plusSeconds(3), () -> expired.add(1L));
+        holdTimer.schedule(1L, LocalDateTime.now().plusSeconds(10), () -> expired.add(2L));
+
+        advance(9);
+        assertTrue(expired.isEmpty());
+
+        advance(1);
+        assertEquals(List.of(2L), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void committedCancellationStopsTheTimer() {
+        holdTimer.schedule(1L, LocalDateTime.now().plusSeconds(3), () -> expired.add(1L));
+        holdTimer.schedule(2L, LocalDateTime.now().plusSeconds(3), () -> expired.add(2L));
+
+        holdTimer.cancelAfterCommit(1L);
+        advance(1);
+        commit();
+
+        advance(10);
+        assertEquals(List.of(2L), expired);
+    }
+
+    @Test
+    void rolledBackCancellationKeepsTheTimer() {
+        holdTimer.schedule(1L, LocalDateTime.now().plusSeconds(3), () -> expired.add(1L));
+
+        holdTimer.cancelAfterCommit(1L);
+        rollBack();
+
+        advance(3);
+        assertEquals(List.of(1L), expired);
+    }
+
+    @Test
+    void cancellingAfterExpiryIsHarmless() {
+        holdTimer.schedule(1L, LocalDateTime.now().plusSeconds(1), () -> expired.add(1L));
+        advance(1);
+
+        holdTimer.cancelAfterCommit(1L);
+        commit();
+
+        // A new hold for the same entry is not affected by the earlier cancellation
+        holdTimer.schedule(1L, LocalDateTime.now().plusSeconds(2), () -> expired.add(1L));
+        advance(2);
+        assertEquals(List.of(1L, 1L), expired);
+    }
+
+    private void advance(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            wheel.tick();
+        }
+    }
+}
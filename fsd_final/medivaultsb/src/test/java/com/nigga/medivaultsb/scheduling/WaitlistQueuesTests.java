@@ -0,0 +1,164 @@
+package com.nigga.medivaultsb.scheduling;
+
+import com.nigga.medivaultsb.model.WaitlistEntry;
+import com.nigga.medivaultsb.repository.WaitlistEntryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.nigga.medivaultsb.TestSupport.commit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WaitlistQueuesTests {
+
+    private static final Long DOCTOR_ID = 10L;
+    private static final LocalDate DAY = LocalDate.now().plusDays(1);
+    private static final LocalDateTime JOINED = LocalDateTime.now().minusDays(3);
+
+    @Mock
+    private WaitlistEntryRepository waitlistEntryRepository;
+
+    @InjectMocks
+    private WaitlistQueues waitlistQueues;
+
+    @BeforeEach
+    void setUp() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void offersTheMostUrgentEntryFirstThenInJoinOrder() {
+        when(waitlistEntryRepository.findByDoctorIdAndRequestedDateAndStatus(DOCTOR_ID, DAY, "WAITING")).thenReturn(List.of(
+                entry(1L, 0, JOINED),
+                entry(2L, 2, JOINED.plusHours(2)),
+                entry(3L, 1, JOINED),
+                entry(4L, 2, JOINED.plusHours(1)),
+                entry(5L, 0, JOINED.minusHours(1)),
+                entry(6L, 2, JOINED.plusHours(1))));
+
+        assertEquals(List.of(4L, 6L, 2L, 3L, 5L, 1L), drain());
+    }
+
+    @Test
+    void loadsEachDayFromTheDatabaseOnce() {
+        when(waitlistEntryRepository.findByDoctorIdAndRequestedDateAndStatus(DOCTOR_ID, DAY, "WAITING"))
+                .thenReturn(List.of(entry(1L, 0, JOINED)));
+
+        assertEquals(List.of(1L), drain());
+        assertTrue(waitlistQueues.poll(DOCTOR_ID, DAY).isEmpty());
+        verify(waitlistEntryRepository, times(1)).findByDoctorIdAndRequestedDateAndStatus(DOCTOR_ID, DAY, "WAITING");
+    }
+
+    @Test
+    void slowLoadForOneDoctorDoesNotHoldUpAnother() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(waitlistEntryRepository.findByDoctorIdAndRequestedDateAndStatus(DOCTOR_ID, DAY, "WAITING")).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return List.of(entry(1L, 0, JOINED));
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Optional<WaitlistQueues.QueuedEntry>> slow = executor.submit(() -> waitlistQueues.poll(DOCTOR_ID, DAY));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+            // Times out if the other doctor's load is waiting behind the first
+            Future<Optional<WaitlistQueues.QueuedEntry>> fast = executor.submit(() -> waitlistQueues.poll(DOCTOR_ID + 1, DAY));
+            assertTrue(fast.get(5, TimeUnit.SECONDS).isEmpty());
+
+            release.countDown();
+            assertEquals(1L, slow.get(5, TimeUnit.SECONDS).orElseThrow().id());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void entryPutBackIsOfferedAgainInItsPlace() {
+        when(waitlistEntryRepository.findByDoctorIdAndRequestedDateAndStatus(DOCTOR_ID, DAY, "WAITING"))
+                .thenReturn(List.of(entry(1L, 1, JOINED), entry(2L, 0, JOINED)));
+
+        WaitlistQueues.QueuedEntry first = waitlistQueues.poll(DOCTOR_ID, DAY).orElseThrow();
+        waitlistQueues.add(DOCTOR_ID, DAY, first);
+        // Adding an entry that is already queued does not duplicate it
+        waitlistQueues.add(DOCTOR_ID, DAY, first);
+
+        assertEquals(List.of(1L, 2L), drain());
+    }
+
+    @Test
+    void joinsAreQueuedOnlyOnceCommitted() {
+        when(waitlistEntryRepository.findByDoctorIdAndRequestedDateAndStatus(DOCTOR_ID, DAY, "WAITING"))
+                .thenReturn(List.of(entry(1L, 0, JOINED)));
+        waitlistQueues.poll(DOCTOR_ID, DAY);
+
+        waitlistQueues.addAfterCommit(DOCTOR_ID, DAY, WaitlistQueues.QueuedEntry.of(entry(2L, 0, JOINED)));
+        assertTrue(waitlistQueues.poll(DOCTOR_ID, DAY).isEmpty());
+
+        commit();
+        assertEquals(List.of(2L), drain());
+    }
+
+    @Test
+    void cancelledEntryLeavesTheQueueOnCommit() {
+        WaitlistEntry cancelled = entry(1L, 2, JOINED);
+        when(waitlistEntryRepository.findByDoctorIdAndRequestedDateAndStatus(DOCTOR_ID, DAY, "WAITING"))
+                .thenReturn(List.of(cancelled, entry(2L, 0, JOINED)));
+        WaitlistQueues.QueuedEntry head = waitlistQueues.poll(DOCTOR_ID, DAY).orElseThrow();
+        waitlistQueues.add(DOCTOR_ID, DAY, head);
+
+        // Matched by id, whatever timestamp precision the entry was read back with
+        cancelled.setCreatedAt(JOINED.withNano(0));
+        waitlistQueues.removeAfterCommit(DOCTOR_ID, DAY, WaitlistQueues.QueuedEntry.of(cancelled));
+        commit();
+
+        assertEquals(List.of(2L), drain());
+    }
+
+    private List<Long> drain() {
+        List<Long> ids = new ArrayList<>();
+        Optional<WaitlistQueues.QueuedEntry> next;
+        while ((next = waitlistQueues.poll(DOCTOR_ID, DAY)).isPresent()) {
+            ids.add(next.get().id());
+        }
+        return ids;
+    }
+
+    private static WaitlistEntry entry(Long id, int urgency, LocalDateTime createdAt) {
+        WaitlistEntry entry = new WaitlistEntry();
+        entry.setId(id);
+        entry.setUrgency(urgency);
+        entry.setRequestedDate(DAY);
+        entry.setStatus("WAITING");
+        entry.setCreatedAt(createdAt);
+        return entry;
+    }
+}
@@ -0,0 +1,207 @@
+package com.nigga.medivaultsb.service;
+
+import com.nigga.medivaultsb.model.Appointment;
+import com.nigga.medivaultsb.model.User;
+import com.nigga.medivaultsb.repository.AppointmentRepository;
+import com.nigga.medivaultsb.repository.UserRepository;
+import com.nigga.medivaultsb.scheduling.AppointmentReminderScheduler;
+import com.nigga.medivaultsb.scheduling.DoctorSlotIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static com.nigga.medivaultsb.TestSupport.SLOT;
+import static com.nigga.medivaultsb.TestSupport.commit;
+import static com.nigga.medivaultsb.TestSupport.rollBack;
+import static com.nigga.medivaultsb.TestSupport.user;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * How status changes occupy and free the doctor's slot in a real {@link DoctorSlotIndex}.
+ */
+@ExtendWith(MockitoExtension.class)
+class AppointmentServiceTests {
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private AppointmentReminderScheduler appointmentReminderScheduler;
+
+    @Mock
+    private AppointmentStatsService appointmentStatsService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private AppointmentService appointmentService;
+
+    private DoctorSlotIndex doctorSlotIndex;
+    private User doctor;
+    private Appointment appointment;
+
+    @BeforeEach
+    void setUp() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        doctorSlotIndex = new DoctorSlotIndex(Duration.ofMinutes(30), 4);
+        ReflectionTestUtils.setField(doctorSlotIndex, "appointmentRepository", appointmentRepository);
+        ReflectionTestUtils.setField(appointmentService, "doctorSlotIndex", doctorSlotIndex);
+
+        doctor = user(10L, "DOCTOR");
+        when(userRepository.findByEmail(doctor.getEmail())).thenReturn(Optional.of(doctor));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(doctor.getEmail(), null, List.of()));
+
+        appointment = new Appointment();
+        appointment.setId(500L);
+        appointment.setDoctor(doctor);
+        appointment.setPatient(user(1L, "PATIENT"));
+        appointment.setAppointmentTime(SLOT);
+        when(appointmentRepository.findById(appointment.getId())).thenReturn(Optional.of(appointment));
+        // Not reached when the slot is refused
+        lenient().when(appointmentRepository.save(any(Appointment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void approvingKeepsTheSlotTaken() {
+        existingAppointmentIn("PENDING");
+
+        appointmentService.updateAppointmentStatus(appointment.getId(), "APPROVED", null);
+        commit();
+
+        assertTrue(slotIsTaken());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void rejectingAPendingAppointmentFreesTheSlot() {
+        existingAppointmentIn("PENDING");
+
+        appointmentService.updateAppointmentStatus(appointment.getId(), "REJECTED", "Away that day");
+        commit();
+
+        assertFalse(slotIsTaken());
+        verify(eventPublisher).publishEvent(new AppointmentSlotFreedEvent(doctor.getId(), SLOT));
+    }
+
+    @Test
+    void rejectingAnApprovedAppointmentFreesTheSlot() {
+        existingAppointmentIn("APPROVED");
+
+        appointmentService.updateAppointmentStatus(appointment.getId(), "REJECTED", null);
+        commit();
+
+        assertFalse(slotIsTaken());
+    }
+
+    @Test
+    void finishingAnAppointmentFreesTheSlot() {
+        existingAppointmentIn("APPROVED");
+
+        appointmentService.updateAppointmentStatus(appointment.getId(), "FINISHED", null);
+        commit();
+
+        assertFalse(slotIsTaken());
+        assertEquals("FINISHED", appointment.getStatus());
+    }
+
+    @Test
+    void rolledBackRejectionKeepsTheSlotTaken() {
+        existingAppointmentIn("PENDING");
+
+        appointmentService.updateAppointmentStatus(appointment.getId(), "REJECTED", null);
+        rollBack();
+
+        assertTrue(slotIsTaken());
+    }
+
+    @Test
+    void reopeningARejectedAppointmentTakesTheSlotAgain() {
+        existingAppointmentIn("REJECTED");
+
+        appointmentService.updateAppointmentStatus(appointment.getId(), "PENDING", null);
+        commit();
+
+        assertTrue(slotIsTaken());
+    }
+
+    @Test
+    void rolledBackReopeningLeavesTheSlotFree() {
+        existingAppointmentIn("REJECTED");
+
+        appointmentService.updateAppointmentStatus(appointment.getId(), "APPROVED", null);
+        rollBack();
+
+        assertFalse(slotIsTaken());
+    }
+
+    @Test
+    void reopeningIsRefusedOnceTheSlotWasBookedAgain() {
+        existingAppointmentIn("REJECTED");
+        doctorSlotIndex.reserve(doctor.getId(), SLOT.plusMinutes(15));
+        commit();
+
+        assertThrows(RuntimeException.class,
+                () -> appointmentService.updateAppointmentStatus(appointment.getId(), "APPROVED", null));
+        assertEquals("REJECTED", appointment.getStatus());
+    }
+
+    @Test
+    void movingBetweenInactiveStatusesLeavesTheSlotFree() {
+        existingAppointmentIn("REJECTED");
+
+        appointmentService.updateAppointmentStatus(appointment.getId(), "FINISHED", null);
+        commit();
+
+        assertFalse(slotIsTaken());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    // Loads the doctor's slots into the index as the database has them before the change
+    private void existingAppointmentIn(String status) {
+        appointment.setStatus(status);
+        when(appointmentRepository.findActiveAppointmentTimes(eq(doctor.getId()), any(), any()))
+                .thenReturn(DoctorSlotIndex.isActive(status) ? List.of(SLOT) : List.of());
+        assertEquals(DoctorSlotIndex.isActive(status), slotIsTaken());
+    }
+
+    private boolean slotIsTaken() {
+        return doctorSlotIndex.freeAmong(doctor.getId(), List.of(SLOT)).isEmpty();
+    }
+}
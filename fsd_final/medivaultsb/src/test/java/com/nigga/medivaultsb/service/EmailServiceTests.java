@@ -0,0 +1,52 @@
+package com.nigga.medivaultsb.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Transactional
+class EmailServiceTests {
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void queueEmailOnceEnqueuesEachKeyOnce() {
+        String dedupKey = "appointment-reminder:" + UUID.randomUUID() + ":60";
+
+        assertTrue(emailService.queueEmailOnce(dedupKey, "patient@example.test", "Reminder", "First"));
+        assertFalse(emailService.queueEmailOnce(dedupKey, "patient@example.test", "Reminder", "Second"));
+
+        assertEquals(1, countOutbox(dedupKey));
+        assertEquals("First", jdbcTemplate.queryForObject(
+                "SELECT body FROM email_outbox WHERE dedup_key = ?", String.class, dedupKey));
+    }
+
+    @Test
+    void queueEmailOnceKeepsDifferentKeysApart() {
+        String appointmentKey = "appointment-reminder:" + UUID.randomUUID();
+
+        assertTrue(emailService.queueEmailOnce(appointmentKey + ":1440", "patient@example.test", "Reminder", "Tomorrow"));
+        assertTrue(emailService.queueEmailOnce(appointmentKey + ":60", "patient@example.test", "Reminder", "Soon"));
+
+        assertEquals(1, countOutbox(appointmentKey + ":1440"));
+        assertEquals(1, countOutbox(appointmentKey + ":60"));
+    }
+
+    private int countOutbox(String dedupKey) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM email_outbox WHERE dedup_key = ?", Integer.class, dedupKey);
+    }
+}
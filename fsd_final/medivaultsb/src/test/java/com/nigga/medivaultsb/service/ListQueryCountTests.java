@@ -0,0 +1,181 @@
+package com.nigga.medivaultsb.service;
+
+import com.nigga.medivaultsb.model.Appointment;
+import com.nigga.medivaultsb.model.Prescription;
+import com.nigga.medivaultsb.model.User;
+import com.nigga.medivaultsb.repository.AppointmentRepository;
+import com.nigga.medivaultsb.repository.PrescriptionRepository;
+import com.nigga.medivaultsb.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Every list endpoint should cost the same number of queries however many rows there are:
+ * the related doctors and patients come with the rows rather than one lookup per row.
+ */
+@SpringBootTest
+@Transactional
+class ListQueryCountTests {
+
+    private static final int ROWS = 10;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private PrescriptionService prescriptionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PrescriptionRepository prescriptionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private User doctor;
+    private User patient;
+    private LocalDateTime nextSlot;
+
+    @BeforeEach
+    void setUp() {
+        doctor = userRepository.save(newUser("DOCTOR"));
+        patient = userRepository.save(newUser("PATIENT"));
+        nextSlot = LocalDateTime.now().plusDays(1);
+        addRows(ROWS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void doctorAppointmentsDoNotQueryPerRow() {
+        signInAs(doctor);
+        assertStatementsDoNotGrowWithRows(
+                () -> appointmentService.getDoctorAppointments(),
+                () -> appointmentService.getDoctorUpcomingAppointments(),
+                () -> appointmentService.getDoctorAppointments(20, null));
+    }
+
+    @Test
+    void patientAppointmentsDoNotQueryPerRow() {
+        signInAs(patient);
+        assertStatementsDoNotGrowWithRows(
+                () -> appointmentService.getPatientAppointments(),
+                () -> appointmentService.getPatientUpcomingAppointments(),
+                () -> appointmentService.getPatientAppointments(20, null));
+    }
+
+    @Test
+    void doctorPrescriptionsDoNotQueryPerRow() {
+        signInAs(doctor);
+        assertStatementsDoNotGrowWithRows(
+                () -> prescriptionService.getDoctorPrescriptions(),
+                () -> prescriptionService.getDoctorPrescriptions(20, null));
+    }
+
+    @Test
+    void patientPrescriptionsDoNotQueryPerRow() {
+        signInAs(patient);
+        assertStatementsDoNotGrowWithRows(
+                () -> prescriptionService.getPatientPrescriptions(),
+                () -> prescriptionService.getPatientPrescriptions(20, null));
+    }
+
+    private void assertStatementsDoNotGrowWithRows(Runnable... calls) {
+        long[] before = new long[calls.length];
+        for (int i = 0; i < calls.length; i++) {
+            before[i] = countStatements(calls[i]);
+        }
+
+        addRows(ROWS);
+
+        for (int i = 0; i < calls.length; i++) {
+            assertEquals(before[i], countStatements(calls[i]), "statements for list call " + i);
+        }
+    }
+
+    // Each row brings a party not seen before, so a lookup per row would show up in the count
+    private void addRows(int rows) {
+        for (int i = 0; i < rows; i++) {
+            User otherPatient = userRepository.save(newUser("PATIENT"));
+            User otherDoctor = userRepository.save(newUser("DOCTOR"));
+            addAppointmentAndPrescription(doctor, otherPatient);
+            addAppointmentAndPrescription(otherDoctor, patient);
+        }
+
+        // Start every count from an empty persistence context, as a request would
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private void addAppointmentAndPrescription(User rowDoctor, User rowPatient) {
+        Appointment appointment = new Appointment();
+        appointment.setDoctor(rowDoctor);
+        appointment.setPatient(rowPatient);
+        appointment.setAppointmentTime(nextSlot);
+        appointment.setStatus("APPROVED");
+        appointmentRepository.save(appointment);
+        nextSlot = nextSlot.plusHours(1);
+
+        Prescription prescription = new Prescription();
+        prescription.setDoctor(rowDoctor);
+        prescription.setPatient(rowPatient);
+        prescription.setMedication("Medication for " + rowPatient.getName());
+        prescription.setDosage("1 tablet");
+        prescriptionRepository.save(prescription);
+    }
+
+    private long countStatements(Runnable call) {
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        // Switched on only around the call so the shared test context runs without statistics
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        try {
+            call.run();
+            return statistics.getPrepareStatementCount();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    private void signInAs(User user) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user.getEmail(), null, List.of()));
+    }
+
+    private User newUser(String role) {
+        User user = new User();
+        user.setName(role.toLowerCase() + " under test");
+        user.setEmail(UUID.randomUUID() + "@example.test");
+        user.setPasswordHash("not-a-real-hash");
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,81 @@
+package com.nigga.medivaultsb.service;
+
+import com.nigga.medivaultsb.model.UploadSession;
+import com.nigga.medivaultsb.repository.UploadSessionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UploadSessionServiceTests {
+
+    private static final Duration SESSION_TTL = Duration.ofHours(24);
+
+    @TempDir
+    Path stagingDir;
+
+    @Mock
+    private UploadSessionRepository uploadSessionRepository;
+
+    @InjectMocks
+    private UploadSessionService uploadSessionService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(uploadSessionService, "stagingDir", stagingDir.toString());
+        ReflectionTestUtils.setField(uploadSessionService, "sessionTtl", SESSION_TTL);
+    }
+
+    @Test
+    void purgeDeletesOldStagingFilesWithoutASession() throws IOException {
+        Path orphan = stagingFile("orphan", SESSION_TTL.plusHours(1));
+        Path owned = stagingFile("owned", SESSION_TTL.plusHours(1));
+        Path recent = stagingFile("recent", Duration.ofMinutes(5));
+        Path unrelated = Files.writeString(stagingDir.resolve("notes.txt"), "kept");
+        Files.setLastModifiedTime(unrelated, FileTime.from(Instant.now().minus(SESSION_TTL.plusHours(1))));
+
+        UploadSession session = new UploadSession();
+        session.setId("owned");
+        when(uploadSessionRepository.findAllById(any())).thenReturn(List.of(session));
+
+        uploadSessionService.purgeExpiredSessions();
+
+        assertFalse(Files.exists(orphan));
+        assertTrue(Files.exists(owned));
+        assertTrue(Files.exists(recent));
+        assertTrue(Files.exists(unrelated));
+    }
+
+    @Test
+    void purgeWithoutAStagingDirectoryDoesNothing() {
+        ReflectionTestUtils.setField(uploadSessionService, "stagingDir", stagingDir.resolve("missing").toString());
+
+        uploadSessionService.purgeExpiredSessions();
+
+        assertFalse(Files.exists(stagingDir.resolve("missing")));
+    }
+
+    private Path stagingFile(String sessionId, Duration age) throws IOException {
+        Path file = Files.writeString(stagingDir.resolve(sessionId + ".part"), "partial upload");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(age)));
+        return file;
+    }
+}
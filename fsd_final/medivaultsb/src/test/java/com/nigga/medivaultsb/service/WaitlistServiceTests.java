@@ -0,0 +1,246 @@
+package com.nigga.medivaultsb.service;
+
+import com.nigga.medivaultsb.model.Appointment;
+import com.nigga.medivaultsb.model.User;
+import com.nigga.medivaultsb.model.WaitlistEntry;
+import com.nigga.medivaultsb.repository.AppointmentRepository;
+import com.nigga.medivaultsb.repository.UserRepository;
+import com.nigga.medivaultsb.repository.WaitlistEntryRepository;
+import com.nigga.medivaultsb.scheduling.DoctorSlotIndex;
+import com.nigga.medivaultsb.scheduling.WaitlistHoldTimer;
+import com.nigga.medivaultsb.scheduling.WaitlistQueues;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static com.nigga.medivaultsb.TestSupport.SLOT;
+import static com.nigga.medivaultsb.TestSupport.user;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Offer, expiry and acceptance of waitlist holds. Row locks are not modelled: each call sees the
+ * state the previous one left, which is the order the database would serialize them in.
+ */
+@ExtendWith(MockitoExtension.class)
+class WaitlistServiceTests {
+
+    @Mock
+    private WaitlistEntryRepository waitlistEntryRepository;
+
+    @Mock
+    private AppointmentRepository appointmentRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private WaitlistHoldTimer waitlistHoldTimer;
+
+    @Mock
+    private DoctorSlotIndex doctorSlotIndex;
+
+    @Mock
+    private PatientRosterCache patientRosterCache;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private AppointmentStatsService appointmentStatsService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private WaitlistService waitlistService;
+
+    private User doctor;
+    private User firstPatient;
+    private WaitlistEntry first;
+    private WaitlistEntry second;
+
+    @BeforeEach
+    void setUp() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        WaitlistQueues waitlistQueues = new WaitlistQueues();
+        ReflectionTestUtils.setField(waitlistQueues, "waitlistEntryRepository", waitlistEntryRepository);
+        ReflectionTestUtils.setField(waitlistService, "waitlistQueues", waitlistQueues);
+        ReflectionTestUtils.setField(waitlistService, "hold", Duration.ofMinutes(30));
+
+        doctor = user(10L, "DOCTOR");
+        firstPatient = user(1L, "PATIENT");
+        first = entry(100L, firstPatient, 1, LocalDateTime.now().minusDays(2));
+        second = entry(101L, user(2L, "PATIENT"), 0, LocalDateTime.now().minusDays(1));
+
+        when(waitlistEntryRepository.findByDoctorIdAndRequestedDateAndStatus(doctor.getId(), SLOT.toLocalDate(), "WAITING"))
+                .thenReturn(List.of(second, first));
+        when(waitlistEntryRepository.findByIdForUpdate(first.getId())).thenReturn(Optional.of(first));
+        when(waitlistEntryRepository.save(any(WaitlistEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(appointmentRepository.save(any(Appointment.class))).thenAnswer(invocation -> {
+            Appointment appointment = invocation.getArgument(0);
+            if (appointment.getId() == null) {
+                appointment.setId(500L + appointment.getPatient().getId());
+            }
+            return appointment;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void freedSlotIsHeldForTheNextPatientInLine() {
+        WaitlistService.Offer offer = waitlistService.offerSlot(doctor.getId(), SLOT).orElseThrow();
+
+        assertEquals(first.getId(), offer.entryId());
+        assertEquals("OFFERED", first.getStatus());
+        assertEquals("HELD", first.getAppointment().getStatus());
+        assertEquals(SLOT, first.getAppointment().getAppointmentTime());
+        assertEquals("WAITING", second.getStatus());
+        verify(doctorSlotIndex).reserve(doctor.getId(), SLOT);
+    }
+
+    @Test
+    void expiredHoldPassesTheSlotToTheNextPatient() {
+        when(waitlistEntryRepository.findByIdForUpdate(second.getId())).thenReturn(Optional.of(second));
+        waitlistService.offerSlot(doctor.getId(), SLOT);
+        Appointment held = first.getAppointment();
+
+        waitlistService.expireOffer(first.getId());
+
+        assertEquals("EXPIRED", first.getStatus());
+        assertNull(first.getAppointment());
+        verify(appointmentRepository).delete(held);
+        verify(doctorSlotIndex).releaseAfterCommit(doctor.getId(), SLOT);
+
+        // The freed slot goes round again, this time to the second patient
+        AppointmentSlotFreedEvent freed = capturedSlotFreedEvent();
+        assertEquals(new AppointmentSlotFreedEvent(doctor.getId(), SLOT), freed);
+        WaitlistService.Offer offer = waitlistService.offerSlot(freed.doctorId(), freed.appointmentTime()).orElseThrow();
+
+        assertEquals(second.getId(), offer.entryId());
+        assertEquals("OFFERED", second.getStatus());
+        assertEquals("HELD", second.getAppointment().getStatus());
+    }
+
+    @Test
+    void holdAcceptedBeforeTheTimerFiresIsKept() {
+        waitlistService.offerSlot(doctor.getId(), SLOT);
+        Appointment held = first.getAppointment();
+
+        signInAs(firstPatient);
+        waitlistService.acceptOffer(first.getId());
+        waitlistService.expireOffer(first.getId());
+
+        assertEquals("BOOKED", first.getStatus());
+        assertEquals("PENDING", held.getStatus());
+        assertEquals(held, first.getAppointment());
+        verify(waitlistHoldTimer).cancelAfterCommit(first.getId());
+        verify(appointmentRepository, never()).delete(any(Appointment.class));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void holdAcceptedAfterTheTimerFiredIsRefused() {
+        waitlistService.offerSlot(doctor.getId(), SLOT);
+
+        waitlistService.expireOffer(first.getId());
+        signInAs(firstPatient);
+        assertThrows(RuntimeException.class, () -> waitlistService.acceptOffer(first.getId()));
+
+        assertEquals("EXPIRED", first.getStatus());
+        verify(appointmentRepository, times(1)).delete(any(Appointment.class));
+    }
+
+    @Test
+    void holdDeclinedBeforeTheTimerFiresFreesTheSlotOnce() {
+        waitlistService.offerSlot(doctor.getId(), SLOT);
+
+        signInAs(firstPatient);
+        waitlistService.cancelEntry(first.getId());
+        waitlistService.expireOffer(first.getId());
+
+        assertEquals("DECLINED", first.getStatus());
+        verify(waitlistHoldTimer).cancelAfterCommit(first.getId());
+        verify(appointmentRepository, times(1)).delete(any(Appointment.class));
+        verify(doctorSlotIndex, times(1)).releaseAfterCommit(doctor.getId(), SLOT);
+        assertEquals(new AppointmentSlotFreedEvent(doctor.getId(), SLOT), capturedSlotFreedEvent());
+    }
+
+    @Test
+    void holdTheDoctorAlreadyActedOnIsNotFreedByTheTimer() {
+        waitlistService.offerSlot(doctor.getId(), SLOT);
+        first.getAppointment().setStatus("APPROVED");
+
+        waitlistService.expireOffer(first.getId());
+
+        assertEquals("BOOKED", first.getStatus());
+        verify(appointmentRepository, never()).delete(any(Appointment.class));
+        verify(doctorSlotIndex, never()).releaseAfterCommit(any(), any());
+    }
+
+    @Test
+    void slotBookedBeforeTheWaitlistGetsToItKeepsThePatientInLine() {
+        doThrow(new RuntimeException("Doctor already has an appointment at this time"))
+                .when(doctorSlotIndex).reserve(doctor.getId(), SLOT);
+
+        assertTrue(waitlistService.offerSlot(doctor.getId(), SLOT).isEmpty());
+        assertEquals("WAITING", first.getStatus());
+
+        doNothing().when(doctorSlotIndex).reserve(doctor.getId(), SLOT);
+        assertEquals(first.getId(), waitlistService.offerSlot(doctor.getId(), SLOT).orElseThrow().entryId());
+    }
+
+    private AppointmentSlotFreedEvent capturedSlotFreedEvent() {
+        ArgumentCaptor<Object> events = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher).publishEvent(events.capture());
+        return (AppointmentSlotFreedEvent) events.getValue();
+    }
+
+    private void signInAs(User user) {
+        when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user.getEmail(), null, List.of()));
+    }
+
+    private WaitlistEntry entry(Long id, User patient, int urgency, LocalDateTime createdAt) {
+        WaitlistEntry entry = new WaitlistEntry();
+        entry.setId(id);
+        entry.setPatient(patient);
+        entry.setDoctor(doctor);
+        entry.setRequestedDate(SLOT.toLocalDate());
+        entry.setUrgency(urgency);
+        entry.setStatus("WAITING");
+        entry.setCreatedAt(createdAt);
+        return entry;
+    }
+}